@@ -0,0 +1,342 @@
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import jade.content.abs.AbsAgentAction;
+import jade.content.abs.AbsAggregate;
+import jade.content.abs.AbsConcept;
+import jade.content.abs.AbsContentElement;
+import jade.content.abs.AbsHelper;
+import jade.content.abs.AbsObject;
+import jade.content.abs.AbsPrimitive;
+import jade.content.lang.ByteArrayCodec;
+import jade.content.onto.BasicOntology;
+import jade.content.onto.Ontology;
+import jade.core.AID;
+
+/**
+ * Compact binary language for the actions of the {@link GameOntology}. Instead
+ * of an SL string like ((action (agent-identifier ...) (Cooperate))) an action
+ * is encoded as a single tag byte, followed by the name of the actor and the
+ * slots of the action, so encoding and decoding don't need any parsing.
+ *
+ * Layout of an encoded action:
+ * <pre>
+ * tag (1 byte) | actor name | slots of the action
+ * </pre>
+ * Strings are encoded as a varint length followed by the UTF-8 bytes.
+ *
+ * @author Mathijs van Bremen
+ * @see BaseAgent
+ */
+public class BinaryCodec extends ByteArrayCodec implements GameVocabulary {
+	/**
+	 * Name of this language, set as language of the messages
+	 */
+	public static final String NAME = "Game-binary";
+	/**
+	 * Tag of the {@link DefectAction}
+	 */
+	private static final byte TAG_DEFECT = 1;
+	/**
+	 * Tag of the {@link CooperateAction}
+	 */
+	private static final byte TAG_COOPERATE = 2;
+	/**
+	 * Tag of the {@link StartAction}
+	 */
+	private static final byte TAG_START = 3;
+	/**
+	 * Tag of the {@link FinishedAction}
+	 */
+	private static final byte TAG_FINISHED = 4;
+	/**
+	 * Tag of the {@link StartBatchAction}
+	 */
+	private static final byte TAG_START_BATCH = 5;
+	/**
+	 * Tag of the {@link MatchAction}
+	 */
+	private static final byte TAG_MATCH = 6;
+	/**
+	 * Tag of the {@link MatchResult}
+	 */
+	private static final byte TAG_MATCH_RESULT = 7;
+
+	/**
+	 * Public constructor that will set the name of this language
+	 */
+	public BinaryCodec() {
+		super(NAME);
+	}
+
+	/**
+	 * Will encode the given content element. Only actions of the
+	 * {@link GameOntology} are supported.
+	 *
+	 * @param content the content element to encode
+	 * @return the encoded content element
+	 * @throws CodecException if the content element is not supported
+	 */
+	@Override
+	public byte[] encode(AbsContentElement content) throws CodecException {
+		// Check if this is an action with an actor
+		if (!BasicOntology.ACTION.equals(content.getTypeName())) {
+			throw new CodecException("Unsupported content " + content.getTypeName());
+		}
+		final AbsConcept actor = (AbsConcept) content.getAbsObject(BasicOntology.ACTION_ACTOR);
+		final AbsObject action = content.getAbsObject(BasicOntology.ACTION_ACTION);
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+		// Write the tag of the action followed by the actor
+		final String type = action.getTypeName();
+		if (DEFECT.equals(type)) {
+			out.write(TAG_DEFECT);
+		} else if (COOPERATE.equals(type)) {
+			out.write(TAG_COOPERATE);
+		} else if (START.equals(type)) {
+			out.write(TAG_START);
+		} else if (FINISHED.equals(type)) {
+			out.write(TAG_FINISHED);
+		} else if (START_BATCH.equals(type)) {
+			out.write(TAG_START_BATCH);
+		} else if (MATCH.equals(type)) {
+			out.write(TAG_MATCH);
+		} else if (MATCH_RESULT.equals(type)) {
+			out.write(TAG_MATCH_RESULT);
+		} else {
+			throw new CodecException("Unsupported action " + type);
+		}
+		writeString(out, actor.getString(BasicOntology.AID_NAME));
+
+		// Write the slots of the action
+		if (START.equals(type)) {
+			writeString(out, ((AbsConcept) action).getString(OPPONENT_NAME));
+		} else if (START_BATCH.equals(type)) {
+			// The amount of opponents followed by the name and repetitions of every opponent
+			final AbsAggregate names = (AbsAggregate) action.getAbsObject(OPPONENT_NAMES);
+			final AbsAggregate repetitions = (AbsAggregate) action.getAbsObject(REPETITIONS);
+			final int size = names == null ? 0 : names.size();
+			if ((repetitions == null ? 0 : repetitions.size()) != size) {
+				throw new CodecException("Every opponent needs an amount of repetitions");
+			}
+			writeVarint(out, size);
+			for (int i = 0; i < size; i++) {
+				writeString(out, ((AbsPrimitive) names.get(i)).getString());
+				writeVarint(out, ((AbsPrimitive) repetitions.get(i)).getInteger());
+			}
+		} else if (MATCH.equals(type)) {
+			final AbsConcept match = (AbsConcept) action;
+			writeString(out, match.getString(OPPONENT_NAME));
+			writeVarint(out, match.getInteger(ITERATIONS));
+		} else if (MATCH_RESULT.equals(type)) {
+			final AbsConcept result = (AbsConcept) action;
+			writeString(out, result.getString(OPPONENT_NAME));
+			writeVarint(out, result.getInteger(ITERATIONS));
+			writeVarint(out, result.getInteger(YEARS_OF_PRISON));
+			writeVarint(out, result.getInteger(OPPONENT_YEARS_OF_PRISON));
+		}
+
+		return out.toByteArray();
+	}
+
+	/**
+	 * Will encode the given content element. The ontology isn't needed as
+	 * the actions this language supports are fixed.
+	 *
+	 * @param ontology the ontology of the content element
+	 * @param content the content element to encode
+	 * @return the encoded content element
+	 * @throws CodecException if the content element is not supported
+	 */
+	@Override
+	public byte[] encode(Ontology ontology, AbsContentElement content) throws CodecException {
+		return encode(content);
+	}
+
+	/**
+	 * Will decode the given bytes into a content element.
+	 *
+	 * @param content the encoded content element
+	 * @return the decoded content element
+	 * @throws CodecException if the content could not be decoded
+	 */
+	@Override
+	public AbsContentElement decode(byte[] content) throws CodecException {
+		final Reader in = new Reader(content);
+		// Read the tag of the action followed by the actor
+		final byte tag = in.readByte();
+		final String actorName = in.readString();
+
+		// Create the action depending on the tag
+		final AbsAgentAction action;
+		switch (tag) {
+			case TAG_DEFECT:
+				action = new AbsAgentAction(DEFECT);
+				break;
+
+			case TAG_COOPERATE:
+				action = new AbsAgentAction(COOPERATE);
+				break;
+
+			case TAG_START:
+				action = new AbsAgentAction(START);
+				action.set(OPPONENT_NAME, in.readString());
+				break;
+
+			case TAG_FINISHED:
+				action = new AbsAgentAction(FINISHED);
+				break;
+
+			case TAG_START_BATCH:
+				action = new AbsAgentAction(START_BATCH);
+				final int size = in.readVarint();
+				final AbsAggregate names = new AbsAggregate(BasicOntology.SEQUENCE);
+				final AbsAggregate repetitions = new AbsAggregate(BasicOntology.SEQUENCE);
+				for (int i = 0; i < size; i++) {
+					names.add(AbsPrimitive.wrap(in.readString()));
+					repetitions.add(AbsPrimitive.wrap(in.readVarint()));
+				}
+				action.set(OPPONENT_NAMES, names);
+				action.set(REPETITIONS, repetitions);
+				break;
+
+			case TAG_MATCH:
+				action = new AbsAgentAction(MATCH);
+				action.set(OPPONENT_NAME, in.readString());
+				action.set(ITERATIONS, in.readVarint());
+				break;
+
+			case TAG_MATCH_RESULT:
+				action = new AbsAgentAction(MATCH_RESULT);
+				action.set(OPPONENT_NAME, in.readString());
+				action.set(ITERATIONS, in.readVarint());
+				action.set(YEARS_OF_PRISON, in.readVarint());
+				action.set(OPPONENT_YEARS_OF_PRISON, in.readVarint());
+				break;
+
+			default:
+				throw new CodecException("Unknown tag " + tag);
+		}
+
+		// Wrap the action together with its actor
+		final AbsAgentAction element = new AbsAgentAction(BasicOntology.ACTION);
+		element.set(BasicOntology.ACTION_ACTOR, AbsHelper.externaliseAID(new AID(actorName, AID.ISGUID)));
+		element.set(BasicOntology.ACTION_ACTION, action);
+
+		return element;
+	}
+
+	/**
+	 * Will decode the given bytes into a content element. The ontology isn't
+	 * needed as the actions this language supports are fixed.
+	 *
+	 * @param ontology the ontology of the content element
+	 * @param content the encoded content element
+	 * @return the decoded content element
+	 * @throws CodecException if the content could not be decoded
+	 */
+	@Override
+	public AbsContentElement decode(Ontology ontology, byte[] content) throws CodecException {
+		return decode(content);
+	}
+
+	/**
+	 * Will write the given String as a varint length followed by its UTF-8 bytes.
+	 *
+	 * @param out the stream to write to
+	 * @param value the String to write
+	 */
+	private static void writeString(ByteArrayOutputStream out, String value) {
+		final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarint(out, bytes.length);
+		out.write(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Will write the given non-negative int in as few bytes as possible, seven
+	 * bits per byte with the highest bit set if more bytes follow.
+	 *
+	 * @param out the stream to write to
+	 * @param value the value to write
+	 */
+	private static void writeVarint(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	/**
+	 * Reads the values written by the {@link BinaryCodec} from a byte array.
+	 */
+	private static class Reader {
+		/**
+		 * The bytes to read from
+		 */
+		private final byte[] bytes;
+		/**
+		 * The position of the next byte to read
+		 */
+		private int position = 0;
+
+		/**
+		 * Constructor that will simply set given parameters
+		 *
+		 * @param bytes the bytes to read from
+		 */
+		private Reader(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		/**
+		 * Returns the next byte.
+		 *
+		 * @return the next byte
+		 * @throws CodecException if there are no bytes left
+		 */
+		private byte readByte() throws CodecException {
+			if (position >= bytes.length) {
+				throw new CodecException("Unexpected end of content");
+			}
+
+			return bytes[position++];
+		}
+
+		/**
+		 * Returns the next varint.
+		 *
+		 * @return the next varint
+		 * @throws CodecException if there are no bytes left
+		 */
+		private int readVarint() throws CodecException {
+			int value = 0;
+			for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+				final byte b = readByte();
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+
+			throw new CodecException("Malformed varint");
+		}
+
+		/**
+		 * Returns the next String.
+		 *
+		 * @return the next String
+		 * @throws CodecException if there are not enough bytes left
+		 */
+		private String readString() throws CodecException {
+			final int length = readVarint();
+			if (length < 0 || length > bytes.length - position) {
+				throw new CodecException("Unexpected end of content");
+			}
+			final String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+			position += length;
+
+			return value;
+		}
+	}
+}
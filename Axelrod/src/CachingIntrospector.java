@@ -0,0 +1,59 @@
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import jade.content.onto.OntologyException;
+import jade.content.onto.ReflectiveIntrospector;
+
+/**
+ * Introspector of the {@link GameOntology} that remembers the accessor
+ * methods it has found. The ReflectiveIntrospector looks up the getter or
+ * setter of a slot by going through all public methods of the class every
+ * time a slot is read or written, which happens for every slot of every
+ * message that is (de)serialized.
+ *
+ * The ontology, and so this introspector, is shared by all agents in this
+ * JVM, so the cache is a {@link ConcurrentMap}. Methods found once never
+ * change, so agents racing on the same lookup simply store the same method.
+ *
+ * @author Mathijs van Bremen
+ * @see GameOntology
+ */
+public class CachingIntrospector extends ReflectiveIntrospector {
+	/**
+	 * {@link ConcurrentMap} containing a class and the methods found in it,
+	 * by the name they were looked up with
+	 */
+	private final ConcurrentMap<Class<?>, ConcurrentMap<String, Method>> methods = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the public method of the given class with the given name,
+	 * ignoring case. The method is only looked up the first time.
+	 *
+	 * @param name name of the method
+	 * @param type the class containing the method
+	 * @return the method
+	 * @throws OntologyException if the class has no such method
+	 */
+	@Override
+	@SuppressWarnings("rawtypes")
+	protected Method findMethodCaseInsensitive(String name, Class type) throws OntologyException {
+		ConcurrentMap<String, Method> classMethods = methods.get(type);
+		if (classMethods == null) {
+			final ConcurrentMap<String, Method> created = new ConcurrentHashMap<>();
+			classMethods = methods.putIfAbsent(type, created);
+			if (classMethods == null) {
+				classMethods = created;
+			}
+		}
+
+		Method method = classMethods.get(name);
+		if (method == null) {
+			// Not found before, let the ReflectiveIntrospector look it up
+			method = super.findMethodCaseInsensitive(name, type);
+			classMethods.put(name, method);
+		}
+
+		return method;
+	}
+}
@@ -1,11 +1,20 @@
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import jade.content.AgentAction;
+import jade.content.Concept;
 import jade.content.onto.basic.Action;
 import jade.core.AID;
+import jade.core.Profile;
+import jade.core.ProfileImpl;
+import jade.core.Runtime;
 import jade.core.behaviours.Behaviour;
-import jade.core.behaviours.OneShotBehaviour;
+import jade.core.behaviours.SimpleBehaviour;
+import jade.core.behaviours.WakerBehaviour;
 import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
 import jade.wrapper.AgentContainer;
 import jade.wrapper.AgentController;
 import jade.wrapper.StaleProxyException;
@@ -44,7 +53,7 @@ June 12th 2017 22:51
  * play the prisoner's dilemma. Their will be an agent for each strategy: 
  * random, defect, cooperate and tit for tat. The agents will play against 
  * each other for the defined amount of times and the amount of years of 
- * prison will be printed in the console whenever updated.
+ * prison will be printed in the console whenever a batch of rounds is over.
  * 
  * The values used for the prisoner's dilemma are:
  * 		|Ad	|Ac	|
@@ -63,17 +72,55 @@ public class ControllerAgent extends BaseAgent {
 	 * (as every round will have two games: A->B and B->A).
 	 */
 	private static final int AMOUNT_OF_ROUNDS = 25;
+	/**
+	 * Amount of games of every match a player initiates within a 
+	 * {@link StartBatchAction}, so the amount of rounds played per batch
+	 */
+	private static final int ITERATIONS_PER_MATCH = 5;
+	/**
+	 * Time in ms after which a batch a player refused is sent again
+	 */
+	private static final long REFUSED_RETRY_DELAY = 100;
+	/**
+	 * Argument that makes the players run in a lightweight container
+	 */
+	private static final String LIGHTWEIGHT = "lightweight";
 	/**
 	 * List containing a couple {@link AgentController} objects for each 
 	 * {@link PlayerAgent} objects set up in the {@link #onSetup()} method
 	 */
 	private final List<AgentController> players = new ArrayList<>();
+	/**
+	 * List containing the name of every {@link PlayerAgent}, in the same 
+	 * order as the {@link #players}
+	 */
+	private final List<String> playerNames = new ArrayList<>();
+	/**
+	 * Counter used to give every batch a unique conversation id
+	 */
+	private long gameCounter = 0;
+	/**
+	 * Container the players are added to, our own container unless the 
+	 * lightweight argument was passed
+	 */
+	private AgentContainer playerContainer;
 	
 	/**
-	 * Method will add the players to the list.
+	 * Method will add the players to the list. When started with the 
+	 * lightweight argument, e.g. Controller:ControllerAgent(lightweight), the 
+	 * players are added to a separate container in which they run on 
+	 * lightweight threads, see {@link LightweightResourceManager}.
 	 */
 	@Override
 	protected void onSetup() {
+		// Check in which container the players should run
+		final Object[] args = getArguments();
+		if (args != null && args.length > 0 && LIGHTWEIGHT.equals(args[0])) {
+			playerContainer = createLightweightContainer();
+		} else {
+			playerContainer = getContainerController();
+		}
+		
 		addPlayer("Random", Strategy.StrategyType.RANDOM);
 		addPlayer("Defect", Strategy.StrategyType.DEFECT);
 		addPlayer("Cooperate", Strategy.StrategyType.COOPERATE);
@@ -82,49 +129,216 @@ public class ControllerAgent extends BaseAgent {
 	
 	/**
 	 * Returns a new Behaviour for this ControllerAgent. This will be a 
-	 * OneShotBehaviour that will run the game for us.
+	 * Behaviour that runs the game as a state machine. Every player gets a 
+	 * single {@link StartBatchAction} containing all the opponents it should 
+	 * initiate a match against, in the order of the slots of a 
+	 * {@link RoundRobinSchedule}. Every match covers {@link #ITERATIONS_PER_MATCH} 
+	 * rounds, played within a single conversation. The players play their 
+	 * matches themselves, report every match with a {@link MatchResult} and 
+	 * send a {@link FinishedAction} once their batch is done. Only when all 
+	 * batches are finished the next batch of rounds is started. The 
+	 * MatchResults are added up into the years of prison of every pair of 
+	 * players, which are printed once all rounds have been played. As the 
+	 * batch of every player holds a match against every other player, both 
+	 * players of a pair initiate a match against each other (A->B in the 
+	 * batch of A and B->A in the batch of B), so every pair plays two games 
+	 * a round.
 	 * 
 	 * @return Returns a {@link Behaviour}
-	 * @see OneShotBehaviour
+	 * @see SimpleBehaviour
 	 */
 	@Override
 	protected Behaviour getBehaviour() {
-		return new OneShotBehaviour(this) {
+		return new SimpleBehaviour(this) {
+			/**
+			 * Template matching the {@link MatchResult}s and {@link FinishedAction}s 
+			 * sent by the players and the refusals of players that are too busy 
+			 * to start a batch
+			 */
+			private final MessageTemplate replyTemplate = MessageTemplate.and(
+					MessageTemplate.or(
+							MessageTemplate.MatchPerformative(ACLMessage.INFORM), 
+							MessageTemplate.MatchPerformative(ACLMessage.REFUSE)), 
+					MessageTemplate.MatchOntology(getOntology().getName()));
+			/**
+			 * The opponents of every player, in the order they are played, 
+			 * set up once all players have been added
+			 */
+			private int[][] opponents;
+			/**
+			 * Years of prison every player got against every other player, 
+			 * added up from the {@link MatchResult}s
+			 */
+			private long[][] headToHead;
+			/**
+			 * {@link Map} containing the conversation ids of the batches of the 
+			 * current rounds that are not finished yet and the index of the player 
+			 * playing the batch
+			 */
+			private final Map<String, Integer> pending = new HashMap<>();
+			/**
+			 * The first round of the current batch
+			 */
+			private int round = 0;
+			
+			/**
+			 * Called before this Behaviour runs for the first time.
+			 */
+			@Override
+			public void onStart() {
+				// The players are added after this Behaviour was created
+				final RoundRobinSchedule schedule = new RoundRobinSchedule(players.size());
+				opponents = new int[players.size()][schedule.getSlotCount() > 0 ? players.size() - 1 : 0];
+				headToHead = new long[players.size()][players.size()];
+				final int[] counts = new int[players.size()];
+				for (int slot = 0; slot < schedule.getSlotCount(); slot++) {
+					final int[] pairs = schedule.getPairs(slot);
+					for (int i = 0; i < pairs.length; i += 2) {
+						opponents[pairs[i]][counts[pairs[i]]++] = pairs[i + 1];
+						opponents[pairs[i + 1]][counts[pairs[i + 1]]++] = pairs[i];
+					}
+				}
+			}
+			
 			/**
 			 * Called when this Behaviour will be ran.
 			 */
 			@Override
-			public void action() {		
-				// Small delay to make sure all other Agents are running				
-				this.myAgent.doWait(1000);				
+			public void action() {
+				// Check if we're waiting for batches to finish
+				if (!pending.isEmpty()) {
+					// Check if a batch finished, if not wait for the next message
+					final ACLMessage msg = myAgent.receive(replyTemplate);
+					if (msg == null) {
+						block();
+						return;
+					}
+					
+					// Check if the player was too busy to start the batch
+					final String conversationId = msg.getConversationId();
+					if (msg.getPerformative() == ACLMessage.REFUSE) {
+						if (pending.containsKey(conversationId)) {
+							retry(conversationId);
+						}
+						return;
+					}
+					
+					// Check if this was a batch of the round
+					final Integer player = pending.get(conversationId);
+					if (player == null) {
+						return;
+					}
+					
+					// Add up the match results, the batch is only done once it's finished
+					final Concept action = getAction(msg);
+					if (action instanceof MatchResult) {
+						recordMatch(player, (MatchResult) action);
+						return;
+					}
+					pending.remove(conversationId);
+					
+					// Check if this was the last batch of the round
+					if (!pending.isEmpty()) {
+						return;
+					}
+					// All games are finished, so the scoreboard is up to date
+					Scoreboard.getInstance().snapshot().print(System.out);
+					System.out.println("===================================================");
+					
+					// Rounds are over, so move on to the next ones
+					round += ITERATIONS_PER_MATCH;
+					if (done()) {
+						printHeadToHead();
+					}
+				}
 				
-				// Iterate for as long as we have rounds left
-				for (int round = 0; round < AMOUNT_OF_ROUNDS; round++) {
-					// Iterate over all the players
-					for (int index = 0; index < players.size(); index++) {
-						// Get current player
-						final AgentController player = players.get(index);
-						
-						// Iterate over all the players playerA can play against
-						for (int opponentIndex = index+1; opponentIndex < players.size(); opponentIndex++) {
-							// Get the opponent
-							final AgentController opponent = players.get(opponentIndex);
-							// Send the StartAction from the player to the opponent
-							sendStartAction(player, opponent);	
-							
-							// Small delay to fix state out of sync issue 
-							this.myAgent.doWait(50);
-							System.out.println("===================================================");
-							
-							// Now send StartAction from opponent to the player (other way around)
-							sendStartAction(opponent, player);	
-							
-							// Small delay to fix state out of sync issue 
-							this.myAgent.doWait(50);
-							System.out.println("===================================================");
+				// Send every player its batch of the current rounds
+				if (!done()) {
+					for (int player = 0; player < players.size(); player++) {
+						// Every batch gets its own conversation id
+						final String conversationId = "batch-" + (gameCounter++);
+						pending.put(conversationId, player);
+						sendStartBatchAction(player, conversationId);
+					}
+				}
+			}
+			
+			/**
+			 * Will send the batch with the given conversation id again after 
+			 * {@link #REFUSED_RETRY_DELAY} ms, by then the player that refused 
+			 * it has finished some of its games.
+			 * 
+			 * @param conversationId the conversation id of the refused batch
+			 */
+			private void retry(final String conversationId) {
+				myAgent.addBehaviour(new WakerBehaviour(myAgent, REFUSED_RETRY_DELAY) {
+					@Override
+					protected void onWake() {
+						final Integer player = pending.get(conversationId);
+						if (player != null) {
+							sendStartBatchAction(player, conversationId);
 						}
-					}					
+					}
+				});
+			}
+			
+			/**
+			 * Will send the {@link StartBatchAction} of the current rounds to 
+			 * the given player.
+			 * 
+			 * @param player index of the player
+			 * @param conversationId the conversation id of the batch
+			 */
+			private void sendStartBatchAction(int player, String conversationId) {
+				final StartBatchAction batchAction = new StartBatchAction();
+				for (int opponent : opponents[player]) {
+					batchAction.addOpponent(playerNames.get(opponent), Math.min(ITERATIONS_PER_MATCH, AMOUNT_OF_ROUNDS - round));
 				}
+				send(player, batchAction, conversationId);
+			}
+			
+			/**
+			 * Will add the years of prison of the given match to the 
+			 * {@link #headToHead} of both players.
+			 * 
+			 * @param player index of the player that initiated the match
+			 * @param result the {@link MatchResult} of the match
+			 */
+			private void recordMatch(int player, MatchResult result) {
+				final int opponent = playerNames.indexOf(result.getOpponentName());
+				if (opponent < 0) {
+					return;
+				}
+				headToHead[player][opponent] += result.getYearsOfPrison();
+				headToHead[opponent][player] += result.getOpponentYearsOfPrison();
+			}
+			
+			/**
+			 * Will print the years of prison every player got against every 
+			 * other player.
+			 */
+			private void printHeadToHead() {
+				for (int player = 0; player < players.size(); player++) {
+					final StringBuilder builder = new StringBuilder(playerNames.get(player));
+					for (int opponent = 0; opponent < players.size(); opponent++) {
+						if (opponent != player) {
+							builder.append(" | ").append(new AID(playerNames.get(opponent), AID.ISGUID).getLocalName())
+									.append(' ').append(headToHead[player][opponent]);
+						}
+					}
+					System.out.println(builder);
+				}
+				System.out.println("===================================================");
+			}
+			
+			/**
+			 * Returns whether all the rounds have been played.
+			 * 
+			 * @return true if all rounds have been played
+			 */
+			@Override
+			public boolean done() {
+				return round >= AMOUNT_OF_ROUNDS || players.size() < 2;
 			}
 		};
 	}
@@ -138,15 +352,17 @@ public class ControllerAgent extends BaseAgent {
 	 */
 	private void addPlayer(String name, Strategy.StrategyType strategyType) {
 		// AgentContainer to add agents to
-		final AgentContainer agentContainer = getContainerController();
-		// Object array so we can pass the StrategyType as an argument to the Agent
-		final Object[] args = new Object[1];
+		final AgentContainer agentContainer = playerContainer;
+		// Object array so we can pass the StrategyType and our AID as arguments to the Agent
+		final Object[] args = new Object[2];
 		args[0] = strategyType;
+		args[1] = getAID();
 		
 		try {
 			// Create a new PlayerAgent, add it to the list and start it
 			final AgentController agent = agentContainer.createNewAgent(name, PlayerAgent.class.getName(), args);
 			players.add(agent);
+			playerNames.add(agent.getName());
 			agent.start();	
 		} catch (StaleProxyException e) {
 			// TODO Auto-generated catch block
@@ -155,29 +371,70 @@ public class ControllerAgent extends BaseAgent {
 	}
 	
 	/**
-	 * Will send the {@link StartAction} that will initiate 
-	 * a game between sender and receiver.
+	 * Will create a new container in this JVM that is connected to our 
+	 * platform and starts its agents on lightweight threads. If the container 
+	 * can't be created our own container is used instead.
+	 * 
+	 * @return the AgentContainer to add the players to
+	 */
+	private AgentContainer createLightweightContainer() {
+		// Connect to the main container of our platform
+		final String host = getProperty(Profile.MAIN_HOST, "localhost");
+		final String port = getProperty(Profile.LOCAL_PORT, getProperty(Profile.MAIN_PORT, "1099"));
+		final Profile profile = new ProfileImpl(host, Integer.parseInt(port), null, false);
+		profile.setParameter(Profile.CONTAINER_NAME, "Players");
+		profile.setParameter("resource", LightweightResourceManager.class.getName());
+		
+		final AgentContainer container = Runtime.instance().createAgentContainer(profile);
+		if (container == null) {
+			System.err.println(getName() + " | could not create lightweight container");
+			return getContainerController();
+		}
+		System.out.println(getName() + " | players run on " 
+				+ (LightweightResourceManager.isVirtual() ? "virtual threads" : "small-stack threads"));
+		
+		return container;
+	}
+	
+	/**
+	 * Returns the AgentAction in the content of the given message.
+	 * 
+	 * @param msg the message sent by a player
+	 * @return the AgentAction or null if the content could not be decoded
+	 */
+	private Concept getAction(ACLMessage msg) {
+		try {
+			return ((Action) getContentManager().extractContent(msg)).getAction();
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+	
+	/**
+	 * Will send the given AgentAction to the given player. The 
+	 * conversation id is used to match the {@link FinishedAction} of the player.
 	 * 
-	 * @param sender the {@link AgentController} receiving the {@link StartAction}
-	 * @param receiver the {@link AgentController} that sender will have a game with
+	 * @param player index of the player receiving the AgentAction
+	 * @param action the AgentAction to send
+	 * @param conversationId the conversation id of the message
 	 */
-	private void sendStartAction(AgentController sender, AgentController receiver) {
-		// Create a new ACLMessage with correct ontology and language
+	private void send(int player, AgentAction action, String conversationId) {
+		// Create a new ACLMessage with correct ontology, language and conversation id
 		final ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
 		msg.setOntology(ControllerAgent.this.getOntology().getName());
 		msg.setLanguage(ControllerAgent.this.getCodec().getName());
+		msg.setConversationId(conversationId);
 		try {
-			// Add the StartAction to the receiver's AID
-			final AID receiverAID = new AID(sender.getName(), AID.ISGUID);
-			final StartAction startAction = new StartAction();
-			startAction.setOpponentName(receiver.getName());
-			getContentManager().fillContent(msg, new Action(receiverAID, startAction));
+			// Add the AgentAction to the receiver's AID
+			final AID receiverAID = new AID(playerNames.get(player), AID.ISGUID);
+			getContentManager().fillContent(msg, new Action(receiverAID, action));
 			// Add the receiver to the message
 			msg.addReceiver(receiverAID);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
 		// Send the message
-		send(msg);	
+		send(msg);
 	}
 }
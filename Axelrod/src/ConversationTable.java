@@ -0,0 +1,238 @@
+import java.util.Collection;
+
+/**
+ * Table containing a value for every conversation id, used by the
+ * {@link Strategy} to look up the state of the game a message belongs to.
+ * The keys are kept in a single array using open addressing with linear
+ * probing, next to an array with their hash codes, so looking up a
+ * conversation id mostly means comparing a couple of ints instead of
+ * walking the entries of a HashMap.
+ *
+ * Only a handful of games are running at the same time, so the table
+ * stays small and is never more than half full. A table can be given a
+ * maximum size, it then forgets the oldest conversation id when a new one
+ * is put in, for conversations of which we never learn they're over.
+ *
+ * @author Mathijs van Bremen
+ * @param <V> the type of the values
+ * @see Strategy
+ */
+public class ConversationTable<V> {
+	/**
+	 * Initial amount of slots, must be a power of two
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * The conversation id in every slot, null if the slot is empty
+	 */
+	private String[] keys = new String[INITIAL_CAPACITY];
+	/**
+	 * The hash code of the conversation id in every slot
+	 */
+	private int[] hashes = new int[INITIAL_CAPACITY];
+	/**
+	 * The value in every slot
+	 */
+	private Object[] values = new Object[INITIAL_CAPACITY];
+	/**
+	 * Amount of conversation ids in the table
+	 */
+	private int size = 0;
+	/**
+	 * Ring of the conversation ids in the order they were put in, null if
+	 * the table has no maximum size
+	 */
+	private final String[] order;
+	/**
+	 * Index in the {@link #order} the next conversation id is put at, the
+	 * oldest one is there
+	 */
+	private int nextOrder = 0;
+
+	/**
+	 * Constructor for a table without a maximum size.
+	 */
+	public ConversationTable() {
+		this.order = null;
+	}
+
+	/**
+	 * Constructor for a table that keeps at most the given amount of the
+	 * conversation ids put in last. Conversation ids must be unique.
+	 *
+	 * @param maxSize the maximum amount of conversation ids
+	 */
+	public ConversationTable(int maxSize) {
+		this.order = new String[maxSize];
+	}
+
+	/**
+	 * Returns the value of the given conversation id.
+	 *
+	 * @param conversationId the conversation id, may be null
+	 * @return the value or null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(String conversationId) {
+		if (conversationId == null) {
+			return null;
+		}
+
+		final int slot = find(conversationId, hash(conversationId));
+		return keys[slot] == null ? null : (V) values[slot];
+	}
+
+	/**
+	 * Will set the value of the given conversation id, replacing the
+	 * value it had before.
+	 *
+	 * @param conversationId the conversation id
+	 * @param value the value
+	 */
+	public void put(String conversationId, V value) {
+		final int hash = hash(conversationId);
+		int slot = find(conversationId, hash);
+		if (keys[slot] == null) {
+			// Forget the oldest conversation id, the entries may move when 
+			// it's removed
+			if (order != null) {
+				final String oldest = order[nextOrder];
+				if (oldest != null && remove(oldest) != null) {
+					slot = find(conversationId, hash);
+				}
+				order[nextOrder] = conversationId;
+				nextOrder = (nextOrder + 1) % order.length;
+			}
+			// Grow once the table would be more than half full
+			if ((size + 1) * 2 > keys.length) {
+				resize(keys.length * 2);
+				slot = find(conversationId, hash);
+			}
+			keys[slot] = conversationId;
+			hashes[slot] = hash;
+			size++;
+		}
+		values[slot] = value;
+	}
+
+	/**
+	 * Will remove the given conversation id from the table.
+	 *
+	 * @param conversationId the conversation id
+	 * @return the value it had or null if there was none
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(String conversationId) {
+		int slot = find(conversationId, hash(conversationId));
+		if (keys[slot] == null) {
+			return null;
+		}
+		final V value = (V) values[slot];
+		size--;
+
+		// Move the following entries of the probe sequence back, so no
+		// lookup stops at the slot we empty
+		final int mask = keys.length - 1;
+		int next = (slot + 1) & mask;
+		while (keys[next] != null) {
+			final int home = hashes[next] & mask;
+			// Only move the entry if its home slot isn't between the empty
+			// slot and the entry itself
+			if (((next - home) & mask) >= ((next - slot) & mask)) {
+				keys[slot] = keys[next];
+				hashes[slot] = hashes[next];
+				values[slot] = values[next];
+				slot = next;
+			}
+			next = (next + 1) & mask;
+		}
+		keys[slot] = null;
+		values[slot] = null;
+
+		return value;
+	}
+
+	/**
+	 * Returns the amount of conversation ids in the table.
+	 *
+	 * @return the amount
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Will add every value in the table to the given collection.
+	 *
+	 * @param collection the collection to add the values to
+	 */
+	@SuppressWarnings("unchecked")
+	public void addValuesTo(Collection<? super V> collection) {
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (keys[slot] != null) {
+				collection.add((V) values[slot]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the slot of the given conversation id, or the empty slot where
+	 * it should be put if it isn't in the table.
+	 *
+	 * @param conversationId the conversation id
+	 * @param hash the hash of the conversation id
+	 * @return the slot
+	 */
+	private int find(String conversationId, int hash) {
+		final int mask = keys.length - 1;
+		int slot = hash & mask;
+		while (keys[slot] != null) {
+			if (hashes[slot] == hash && keys[slot].equals(conversationId)) {
+				break;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		return slot;
+	}
+
+	/**
+	 * Will move all entries into a table of the given amount of slots.
+	 *
+	 * @param capacity the new amount of slots, a power of two
+	 */
+	private void resize(int capacity) {
+		final String[] oldKeys = keys;
+		final int[] oldHashes = hashes;
+		final Object[] oldValues = values;
+		keys = new String[capacity];
+		hashes = new int[capacity];
+		values = new Object[capacity];
+
+		final int mask = capacity - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				int slot = oldHashes[i] & mask;
+				while (keys[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				hashes[slot] = oldHashes[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	/**
+	 * Returns the hash of the given conversation id. The ids only differ in
+	 * their last characters, so the bits are spread before taking the slot.
+	 *
+	 * @param conversationId the conversation id
+	 * @return the hash
+	 */
+	private static int hash(String conversationId) {
+		final int hash = conversationId.hashCode();
+		return hash ^ (hash >>> 16);
+	}
+}
@@ -0,0 +1,354 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Ecological version of the tournament: instead of a fixed roster there is
+ * a population of players, every strategy of a {@link StrategyLibrary}
+ * making up a part of it. Every generation all players play against each
+ * other and the next generation is drawn from the current one in proportion
+ * to how well the players did, so successful strategies grow and
+ * unsuccessful ones die out.
+ *
+ * Playing every pairing of players every generation would take far too
+ * long, but the outcome of a match only depends on the strategies
+ * involved. The average score of a pair of deterministic strategies is
+ * therefore taken from the {@link PayoffCache} once, the first time both
+ * are part of the population. A pair involving a strategy that moves by
+ * chance plays a new match with the {@link TournamentEngine} every
+ * generation instead, so a single lucky match doesn't decide its fate. The
+ * total score of every strategy is kept up to date by only adding the
+ * difference of the strategies whose amount of players or score changed.
+ *
+ * Run it with (all arguments are optional):
+ * <pre>
+ * java EcologicalTournament [generations] [population] [rounds] [seed] [matrix] [strategies file]
+ * </pre>
+ *
+ * @author Mathijs van Bremen
+ * @see TournamentEngine, PayoffCache
+ */
+public class EcologicalTournament {
+	/**
+	 * The strategies making up the population
+	 */
+	private final StrategyMachine[] strategies;
+	/**
+	 * Amount of strategies
+	 */
+	private final int types;
+
+	/**
+	 * The payoff matrix used to determine the years of prison
+	 */
+	private final PayoffMatrix payoffMatrix;
+	/**
+	 * Amount of rounds every pair of strategies plays to determine
+	 * their average score
+	 */
+	private final int rounds;
+	/**
+	 * Random class used to play the matches and draw the next generation
+	 */
+	private final Random random;
+	/**
+	 * The most years of prison a single game can give, a game's score is
+	 * this minus the years of prison so fewer years means a higher score
+	 */
+	private final int maxYears;
+
+	/**
+	 * Average score per game of every strategy against every other
+	 * strategy, indexed by type * {@link #types} + opponent's type. The
+	 * scores of pairs involving a strategy that moves by chance are those of
+	 * the match of the current generation.
+	 */
+	private final double[] scores;
+	/**
+	 * Whether the score of a pair of strategies is in {@link #scores} yet,
+	 * indexed like the scores
+	 */
+	private final boolean[] cached;
+	/**
+	 * Amount of players of every strategy in the current generation
+	 */
+	private final int[] population;
+	/**
+	 * Sum of the scores of a player of every strategy against every
+	 * player in the population, including itself
+	 */
+	private final double[] totals;
+	/**
+	 * Amount of players of every strategy in the next generation
+	 */
+	private final int[] nextPopulation;
+	/**
+	 * Cumulative weight of every strategy, used to draw the next generation
+	 */
+	private final double[] weights;
+	/**
+	 * Amount of matches played to fill the {@link #scores}
+	 */
+	private int matchesPlayed = 0;
+
+	/**
+	 * Constructor that will set up a population with the same amount of
+	 * players for every strategy of the default {@link StrategyLibrary}.
+	 *
+	 * @param payoffMatrix the payoff matrix to use
+	 * @param populationSize the amount of players in every generation
+	 * @param rounds amount of rounds every pair of strategies plays
+	 * @param seed seed for the {@link Random} so runs can be repeated
+	 */
+	public EcologicalTournament(PayoffMatrix payoffMatrix, int populationSize, int rounds, long seed) {
+		this(StrategyLibrary.getDefault().getAll().toArray(new StrategyMachine[0]),
+				payoffMatrix, populationSize, rounds, seed);
+	}
+
+	/**
+	 * Constructor that will set up a population with the same amount of
+	 * players for every given strategy.
+	 *
+	 * @param strategies the strategies making up the population
+	 * @param payoffMatrix the payoff matrix to use
+	 * @param populationSize the amount of players in every generation
+	 * @param rounds amount of rounds every pair of strategies plays
+	 * @param seed seed for the {@link Random} so runs can be repeated
+	 */
+	public EcologicalTournament(StrategyMachine[] strategies, PayoffMatrix payoffMatrix, int populationSize,
+			int rounds, long seed) {
+		this.strategies = strategies.clone();
+		this.types = strategies.length;
+		this.scores = new double[types * types];
+		this.cached = new boolean[types * types];
+		this.population = new int[types];
+		this.totals = new double[types];
+		this.nextPopulation = new int[types];
+		this.weights = new double[types];
+		this.payoffMatrix = payoffMatrix;
+		this.rounds = rounds;
+		this.random = new Random(seed);
+
+		int max = 0;
+		for (int move = 0; move < 2; move++) {
+			for (int opponentMove = 0; opponentMove < 2; opponentMove++) {
+				max = Math.max(max, payoffMatrix.getYears(move, opponentMove));
+			}
+		}
+		this.maxYears = max;
+
+		// Divide the players evenly, the first strategies get the remainder
+		final int[] initial = new int[types];
+		for (int type = 0; type < types; type++) {
+			initial[type] = populationSize / types + (type < populationSize % types ? 1 : 0);
+		}
+		setPopulation(initial);
+	}
+
+	/**
+	 * Returns the amount of players of every strategy in the current
+	 * generation.
+	 *
+	 * @return the amounts, indexed like {@link #getStrategies()}
+	 */
+	public int[] getPopulation() {
+		return population.clone();
+	}
+
+	/**
+	 * Returns the strategies making up the population.
+	 *
+	 * @return the strategies
+	 */
+	public StrategyMachine[] getStrategies() {
+		return strategies.clone();
+	}
+
+	/**
+	 * Returns the amount of matches that were played to determine the scores
+	 * of the pairs of strategies, at most one for every pair of deterministic
+	 * strategies and one every generation for the other pairs.
+	 *
+	 * @return the amount of matches
+	 */
+	public int getMatchesPlayed() {
+		return matchesPlayed;
+	}
+
+	/**
+	 * Will play a single generation and replace the population by the next
+	 * generation, drawn in proportion to the score of every player. The
+	 * pairs that move by chance then play new matches for the next generation.
+	 */
+	public void playGeneration() {
+		// Weight of a strategy is the total score of all its players
+		double sum = 0;
+		for (int type = 0; type < types; type++) {
+			sum += population[type] * totals[type];
+			weights[type] = sum;
+		}
+
+		Arrays.fill(nextPopulation, 0);
+		int size = 0;
+		for (int type = 0; type < types; type++) {
+			size += population[type];
+		}
+		if (sum <= 0) {
+			// Nobody scored anything, so the population stays the same
+			resample();
+			return;
+		}
+
+		// Draw every player of the next generation
+		for (int i = 0; i < size; i++) {
+			final double value = random.nextDouble() * sum;
+			int type = 0;
+			while (type < types - 1 && value >= weights[type]) {
+				type++;
+			}
+			nextPopulation[type]++;
+		}
+		setPopulation(nextPopulation);
+		resample();
+	}
+
+	/**
+	 * Will change the population to the given amounts and update the
+	 * {@link #totals} for the strategies whose amount changed.
+	 *
+	 * @param amounts the new amount of players of every strategy
+	 */
+	private void setPopulation(int[] amounts) {
+		for (int opponent = 0; opponent < types; opponent++) {
+			final int delta = amounts[opponent] - population[opponent];
+			if (delta == 0) {
+				continue;
+			}
+
+			// Only the score against this strategy changes. Extinct
+			// strategies are skipped, they can't come back anyway
+			for (int type = 0; type < types; type++) {
+				if (amounts[type] > 0) {
+					totals[type] += delta * getScore(type, opponent);
+				}
+			}
+			population[opponent] = amounts[opponent];
+		}
+	}
+
+	/**
+	 * Will play a new match for every pair of living strategies involving a
+	 * strategy that moves by chance and update the {@link #totals} by the
+	 * difference with the score of the previous match.
+	 */
+	private void resample() {
+		for (int type = 0; type < types; type++) {
+			if (population[type] == 0) {
+				continue;
+			}
+			for (int opponent = type; opponent < types; opponent++) {
+				if (population[opponent] == 0
+						|| (strategies[type].isDeterministic() && strategies[opponent].isDeterministic())) {
+					continue;
+				}
+
+				final int index = type * types + opponent;
+				final int opponentIndex = opponent * types + type;
+				final double score = scores[index];
+				final double opponentScore = scores[opponentIndex];
+				playMatch(type, opponent);
+				totals[type] += population[opponent] * (scores[index] - score);
+				if (opponent != type) {
+					totals[opponent] += population[type] * (scores[opponentIndex] - opponentScore);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the average score per game of the given strategy against
+	 * the other given strategy, playing a match between them if they
+	 * haven't played before.
+	 *
+	 * @param type index of the strategy
+	 * @param opponent index of the opponent's strategy
+	 * @return the average score per game
+	 */
+	private double getScore(int type, int opponent) {
+		if (!cached[type * types + opponent]) {
+			playMatch(type, opponent);
+		}
+
+		return scores[type * types + opponent];
+	}
+
+	/**
+	 * Will play a match between the given strategies and store the scores
+	 * of both in the {@link #scores}. Deterministic strategies always play
+	 * the same match, which is taken from the {@link PayoffCache}.
+	 *
+	 * @param type index of the strategy
+	 * @param opponent index of the opponent's strategy
+	 */
+	private void playMatch(int type, int opponent) {
+		final StrategyMachine machine = strategies[type];
+		final StrategyMachine opponentMachine = strategies[opponent];
+		final long[] years;
+		if (machine.isDeterministic() && opponentMachine.isDeterministic()) {
+			years = PayoffCache.getInstance().getOutcome(machine, opponentMachine, rounds, payoffMatrix);
+		} else {
+			years = new TournamentEngine(new StrategyMachine[] { machine, opponentMachine },
+					payoffMatrix, random.nextLong()).play(rounds);
+		}
+
+		// Every round the pair plays two games
+		final int games = rounds * 2;
+		scores[type * types + opponent] = maxYears - (double) years[0] / games;
+		scores[opponent * types + type] = maxYears - (double) years[1] / games;
+		cached[type * types + opponent] = true;
+		cached[opponent * types + type] = true;
+		matchesPlayed++;
+	}
+
+	/**
+	 * Will play the given amount of generations and print the population
+	 * every so many generations.
+	 *
+	 * @param args optional amount of generations, population size, rounds,
+	 * seed, payoff matrix as cc/dd/cd/dc and file with strategies
+	 * @throws IOException if the file with strategies can't be read
+	 */
+	public static void main(String[] args) throws IOException {
+		final int generations = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		final int populationSize = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		final int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+		final long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+		final PayoffMatrix payoffMatrix = args.length > 4 ? PayoffMatrix.parse(args[4]) : PayoffMatrix.DEFAULT;
+
+		final StrategyLibrary library = StrategyLibrary.getDefault().copy();
+		if (args.length > 5) {
+			library.load(args[5]);
+		}
+		final StrategyMachine[] strategies = library.getAll().toArray(new StrategyMachine[0]);
+
+		final EcologicalTournament tournament = new EcologicalTournament(strategies, payoffMatrix,
+				populationSize, rounds, seed);
+		// Print about twenty generations
+		final int interval = Math.max(1, generations / 20);
+		for (int generation = 0; generation <= generations; generation++) {
+			if (generation % interval == 0 || generation == generations) {
+				final int[] population = tournament.getPopulation();
+				final StringBuilder builder = new StringBuilder();
+				builder.append(generation);
+				for (int type = 0; type < strategies.length; type++) {
+					builder.append(" | ").append(strategies[type]).append(' ').append(population[type]);
+				}
+				System.out.println(builder);
+			}
+			if (generation < generations) {
+				tournament.playGeneration();
+			}
+		}
+		System.out.println("Matches played: " + tournament.getMatchesPlayed());
+	}
+}
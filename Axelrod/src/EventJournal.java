@@ -0,0 +1,598 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Journal of the game events of all agents in this JVM. Every agent writes
+ * its events as fixed-width records into a ring buffer of its own through a
+ * {@link Writer}, which only takes a couple of array writes and never
+ * blocks. A background thread drains the ring buffers in batches into a
+ * memory-mapped file, so writing the events doesn't cost any console or
+ * file I/O on the agent's thread. If a ring buffer is full the event is
+ * dropped and counted instead of waiting for the background thread.
+ *
+ * A Writer queues itself for the background thread when it gets its first
+ * record since it was last drained, and wakes the thread if it's parked. The
+ * background thread only drains queued Writers and sleeps while there are
+ * none, so idle agents cost nothing. The ring buffer is only allocated once
+ * the first event is written, and an agent must {@link Writer#close() close}
+ * its Writer when it is taken down.
+ *
+ * Layout of the journal file, all values big-endian:
+ * <pre>
+ * header: magic (4) | record size (4) | start time in ms (8) | record count (8)
+ * record: time in ns since start (8) | sender (4) | receiver (4) | event (4) | move (4) | round (4) | unused (4)
+ * </pre>
+ * Senders and receivers are ids handed out by {@link #getId(String)}, the
+ * names belonging to the ids are written to a file next to the journal
+ * with the extension .names, one name per line. Run this class with the
+ * name of a journal file to print it.
+ *
+ * The journal is written to the file set by the journal system property,
+ * events.journal by default.
+ *
+ * @author Mathijs van Bremen
+ * @see Strategy
+ */
+public class EventJournal {
+	/**
+	 * Magic number at the start of every journal file
+	 */
+	private static final int MAGIC = 0x4A524E4C;
+	/**
+	 * Size of the header in bytes
+	 */
+	private static final int HEADER_SIZE = 24;
+	/**
+	 * Size of a record in bytes
+	 */
+	private static final int RECORD_SIZE = 32;
+	/**
+	 * Amount of ints stored per record in a ring buffer
+	 */
+	private static final int RECORD_INTS = 5;
+	/**
+	 * Amount of records a ring buffer can hold, a power of two. The background
+	 * thread is woken by the first record, so the ring only has to hold the
+	 * records written until it gets to run.
+	 */
+	private static final int RING_SIZE = 1 << 8;
+	/**
+	 * Amount of bytes mapped at once, the file grows by this amount and is
+	 * truncated to the records written when the journal is closed
+	 */
+	private static final int MAPPED_SIZE = 1 << 20;
+
+	/**
+	 * {@link Map} containing the names and the ids handed out for them
+	 */
+	private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+	/**
+	 * The next id to hand out
+	 */
+	private final AtomicInteger nextId = new AtomicInteger();
+	/**
+	 * The ring buffers of all agents that weren't closed yet
+	 */
+	private final Set<Writer> writers = ConcurrentHashMap.newKeySet();
+	/**
+	 * The ring buffers that got records since they were last drained
+	 */
+	private final Queue<Writer> pending = new ConcurrentLinkedQueue<>();
+	/**
+	 * boolean indicating whether the background thread is about to park or parked
+	 */
+	private volatile boolean idle = false;
+	/**
+	 * Amount of records dropped by Writers that were closed
+	 */
+	private long closedDropped = 0;
+	/**
+	 * Time the journal was opened, records store the time relative to this
+	 */
+	private final long startNanos = System.nanoTime();
+	/**
+	 * Path of the journal file
+	 */
+	private final String path;
+	/**
+	 * The journal file, null if it could not be opened
+	 */
+	private FileChannel channel;
+	/**
+	 * The mapped header of the journal file
+	 */
+	private MappedByteBuffer header;
+	/**
+	 * The mapped region of the journal file the next records are written to
+	 */
+	private MappedByteBuffer buffer;
+	/**
+	 * Offset of the mapped region in the journal file
+	 */
+	private long mappedOffset;
+	/**
+	 * Amount of records written to the journal file
+	 */
+	private long recordCount;
+	/**
+	 * The thread draining the ring buffers
+	 */
+	private final Thread drainThread;
+	/**
+	 * boolean indicating whether the journal is being closed
+	 */
+	private volatile boolean closing = false;
+
+	/**
+	 * Holder of the journal of this JVM, so it's only opened once used.
+	 */
+	private static class Holder {
+		/**
+		 * The journal of this JVM
+		 */
+		private static final EventJournal INSTANCE = new EventJournal(System.getProperty("journal", "events.journal"));
+	}
+
+	/**
+	 * Constructor that will open the given journal file and start the
+	 * background thread.
+	 *
+	 * @param path path of the journal file
+	 */
+	private EventJournal(String path) {
+		this.path = path;
+		try {
+			@SuppressWarnings("resource")
+			final RandomAccessFile file = new RandomAccessFile(path, "rw");
+			file.setLength(0);
+			channel = file.getChannel();
+			// Write the header, the record count is kept up to date by flush()
+			header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+			header.putInt(MAGIC);
+			header.putInt(RECORD_SIZE);
+			header.putLong(System.currentTimeMillis());
+			header.putLong(0);
+			map(HEADER_SIZE);
+		} catch (IOException e) {
+			// Keep running without journal
+			System.err.println("Could not open journal " + path + ": " + e.getMessage());
+			channel = null;
+		}
+
+		drainThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drain();
+			}
+		}, "EventJournal");
+		drainThread.setDaemon(true);
+		drainThread.start();
+
+		// Make sure all events end up in the file when the JVM stops
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+			@Override
+			public void run() {
+				close();
+			}
+		}, "EventJournal-close"));
+	}
+
+	/**
+	 * Returns the journal of this JVM.
+	 *
+	 * @return the EventJournal
+	 */
+	public static EventJournal getInstance() {
+		return Holder.INSTANCE;
+	}
+
+	/**
+	 * Returns the id for the given name, handing out a new one if the name
+	 * doesn't have one yet. Ids are used instead of names in the records.
+	 *
+	 * @param name the name of an agent
+	 * @return the id of the name
+	 */
+	public int getId(String name) {
+		final Integer id = ids.get(name);
+		if (id != null) {
+			return id;
+		}
+
+		synchronized (ids) {
+			// Another thread may have handed out an id in the meantime
+			final Integer existing = ids.get(name);
+			if (existing != null) {
+				return existing;
+			}
+			final int newId = nextId.getAndIncrement();
+			ids.put(name, newId);
+			return newId;
+		}
+	}
+
+	/**
+	 * Returns a new {@link Writer} with a ring buffer of its own. A Writer
+	 * may only be used by a single thread at a time.
+	 *
+	 * @return the Writer
+	 */
+	public Writer createWriter() {
+		final Writer writer = new Writer(this);
+		writers.add(writer);
+
+		return writer;
+	}
+
+	/**
+	 * Will queue the given Writer for the background thread and wake the
+	 * thread if it's parked.
+	 *
+	 * @param writer the Writer that got a record or was closed
+	 */
+	private void schedule(Writer writer) {
+		pending.add(writer);
+		// Written after the queue, read by the background thread before
+		// parking, so either it sees the Writer or we see it's idle
+		if (idle) {
+			LockSupport.unpark(drainThread);
+		}
+	}
+
+	/**
+	 * Runs on the background thread, draining the queued ring buffers until
+	 * the journal is closed and parking while there are none.
+	 */
+	private void drain() {
+		while (!closing) {
+			final Writer writer = pending.poll();
+			if (writer != null) {
+				drain(writer);
+				continue;
+			}
+
+			// Nothing left to drain, so let the header count all records
+			flush();
+			idle = true;
+			if (pending.isEmpty() && !closing) {
+				LockSupport.park(this);
+			}
+			idle = false;
+		}
+	}
+
+	/**
+	 * Will drain the given ring buffer into the journal file and forget it
+	 * once it's closed and empty.
+	 *
+	 * @param writer the Writer to drain
+	 */
+	private synchronized void drain(Writer writer) {
+		// Unqueued before draining, so records written from now on queue it again
+		writer.queued = false;
+		writer.drainTo(this);
+		if (writer.closed && writer.isEmpty() && writers.remove(writer)) {
+			closedDropped += writer.dropped;
+		}
+	}
+
+	/**
+	 * Will drain all ring buffers into the journal file.
+	 */
+	private synchronized void drainAll() {
+		for (Writer writer : writers) {
+			writer.drainTo(this);
+		}
+	}
+
+	/**
+	 * Will write a single record to the journal file, mapping the next
+	 * region of the file if the current one is full.
+	 *
+	 * @param time time of the event in ns since the journal was opened
+	 * @param data ring buffer containing the other values of the record
+	 * @param offset offset of the values in the ring buffer
+	 */
+	private void write(long time, int[] data, int offset) {
+		if (channel == null) {
+			return;
+		}
+
+		try {
+			if (buffer.remaining() < RECORD_SIZE) {
+				map(mappedOffset + buffer.position());
+			}
+			buffer.putLong(time);
+			for (int i = 0; i < RECORD_INTS; i++) {
+				buffer.putInt(data[offset + i]);
+			}
+			buffer.putInt(0);
+			recordCount++;
+		} catch (IOException e) {
+			System.err.println("Could not write journal " + path + ": " + e.getMessage());
+			channel = null;
+		}
+	}
+
+	/**
+	 * Will map the region of the journal file starting at the given offset.
+	 *
+	 * @param offset offset of the region in the journal file
+	 * @throws IOException if the region could not be mapped
+	 */
+	private void map(long offset) throws IOException {
+		if (buffer != null) {
+			buffer.force();
+			flush();
+		}
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, offset, MAPPED_SIZE);
+		mappedOffset = offset;
+	}
+
+	/**
+	 * Will write the amount of records written so far to the header, so the
+	 * records can be read even if the JVM is killed before closing.
+	 */
+	private synchronized void flush() {
+		if (channel != null) {
+			header.putLong(HEADER_SIZE - Long.BYTES, recordCount);
+		}
+	}
+
+	/**
+	 * Will stop the background thread, write the remaining records and the
+	 * names of all ids to disk. Called when the JVM stops.
+	 */
+	public void close() {
+		closing = true;
+		LockSupport.unpark(drainThread);
+		try {
+			drainThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		synchronized (this) {
+			drainAll();
+			if (channel == null) {
+				return;
+			}
+
+			long dropped = closedDropped;
+			for (Writer writer : writers) {
+				dropped += writer.dropped;
+			}
+			if (dropped > 0) {
+				System.err.println("Journal " + path + " dropped " + dropped + " events");
+			}
+
+			try {
+				// Update the record count in the header and write everything to disk
+				flush();
+				header.force();
+				buffer.force();
+				// Cut off the unused part of the last mapped region
+				channel.truncate(HEADER_SIZE + recordCount * RECORD_SIZE);
+				channel.close();
+				channel = null;
+
+				writeNames();
+			} catch (IOException e) {
+				System.err.println("Could not close journal " + path + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Will write the names of all ids to the names file, one name per line
+	 * in order of their id.
+	 *
+	 * @throws IOException if the file could not be written
+	 */
+	private void writeNames() throws IOException {
+		final String[] names = new String[nextId.get()];
+		for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+			names[entry.getValue()] = entry.getKey();
+		}
+
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(path + ".names"), StandardCharsets.UTF_8))) {
+			for (String name : names) {
+				out.println(name);
+			}
+		}
+	}
+
+	/**
+	 * Single-producer ring buffer an agent writes its events to. Only the
+	 * owning thread writes records and moves the head, only the background
+	 * thread reads records and moves the tail.
+	 */
+	public static class Writer {
+		/**
+		 * The journal this Writer belongs to
+		 */
+		private final EventJournal journal;
+		/**
+		 * Time of every record in the ring buffer, null until the first record
+		 */
+		private long[] times;
+		/**
+		 * Values of every record in the ring buffer, {@link #RECORD_INTS} per record
+		 */
+		private int[] data;
+		/**
+		 * Amount of records ever written, only moved by the producer
+		 */
+		private volatile long head = 0;
+		/**
+		 * Amount of records ever drained, only moved by the background thread
+		 */
+		private volatile long tail = 0;
+		/**
+		 * Amount of records dropped because the ring buffer was full
+		 */
+		private volatile long dropped = 0;
+		/**
+		 * boolean indicating whether this Writer is queued for the background
+		 * thread, only set by the producer and only cleared by the background thread
+		 */
+		private volatile boolean queued = false;
+		/**
+		 * boolean indicating whether the agent is done writing
+		 */
+		private volatile boolean closed = false;
+
+		/**
+		 * Private constructor, use {@link EventJournal#createWriter()}.
+		 *
+		 * @param journal the journal this Writer belongs to
+		 */
+		private Writer(EventJournal journal) {
+			this.journal = journal;
+		}
+
+		/**
+		 * Will write the given event to the ring buffer. Never blocks, if the
+		 * ring buffer is full the event is dropped.
+		 *
+		 * @param sender id of the agent that sent the message
+		 * @param receiver id of the agent that received the message
+		 * @param event type of the event, defined by the caller
+		 * @param move the move of the event or -1 if there is none
+		 * @param round the round of the event
+		 * @return true if the event was written, false if it was dropped
+		 */
+		public boolean record(int sender, int receiver, int event, int move, int round) {
+			final long position = head;
+			if (position - tail >= RING_SIZE) {
+				dropped++;
+				return false;
+			}
+			if (times == null) {
+				// Only agents that write events get a ring buffer
+				data = new int[RING_SIZE * RECORD_INTS];
+				times = new long[RING_SIZE];
+			}
+
+			final int index = (int) (position & (RING_SIZE - 1));
+			final int offset = index * RECORD_INTS;
+			times[index] = System.nanoTime();
+			data[offset] = sender;
+			data[offset + 1] = receiver;
+			data[offset + 2] = event;
+			data[offset + 3] = move;
+			data[offset + 4] = round;
+			// Publish the record to the background thread
+			head = position + 1;
+			if (!queued) {
+				queued = true;
+				journal.schedule(this);
+			}
+
+			return true;
+		}
+
+		/**
+		 * Will hand the remaining records to the background thread, after which
+		 * the journal forgets this Writer. Should be called by the agent when
+		 * it's taken down, no records may be written afterwards.
+		 */
+		public void close() {
+			closed = true;
+			journal.schedule(this);
+		}
+
+		/**
+		 * Returns whether all records were drained.
+		 *
+		 * @return true if the ring buffer is empty
+		 */
+		private boolean isEmpty() {
+			return head == tail;
+		}
+
+		/**
+		 * Will write all records in the ring buffer to the given journal.
+		 *
+		 * @param journal the journal to write to
+		 * @return the amount of records drained
+		 */
+		private int drainTo(EventJournal journal) {
+			final long end = head;
+			if (end == tail) {
+				return 0;
+			}
+			long position = tail;
+			for (; position < end; position++) {
+				final int index = (int) (position & (RING_SIZE - 1));
+				journal.write(times[index] - journal.startNanos, data, index * RECORD_INTS);
+			}
+			final int drained = (int) (position - tail);
+			// Hand the slots back to the producer
+			tail = position;
+
+			return drained;
+		}
+	}
+
+	/**
+	 * Will print the records of the given journal file.
+	 *
+	 * @param args the path of the journal file
+	 * @throws IOException if the journal could not be read
+	 */
+	public static void main(String[] args) throws IOException {
+		final String path = args.length > 0 ? args[0] : "events.journal";
+		// The names are only written on close, without them the ids are printed
+		final Path namesPath = Paths.get(path + ".names");
+		final List<String> names = Files.exists(namesPath)
+				? Files.readAllLines(namesPath, StandardCharsets.UTF_8) : Collections.<String>emptyList();
+
+		try (RandomAccessFile file = new RandomAccessFile(path, "r");
+				FileChannel channel = file.getChannel()) {
+			final MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (in.getInt() != MAGIC || in.getInt() != RECORD_SIZE) {
+				throw new IOException(path + " is not a journal");
+			}
+			final long startMillis = in.getLong();
+			// Never read past the end of the file, even if the header is wrong
+			final long count = Math.min(in.getLong(), (channel.size() - HEADER_SIZE) / RECORD_SIZE);
+			System.out.println("Journal started at " + new Date(startMillis) + ", " + count + " records");
+
+			final StringBuilder line = new StringBuilder();
+			for (long i = 0; i < count; i++) {
+				final long time = in.getLong();
+				final int sender = in.getInt();
+				final int receiver = in.getInt();
+				final int event = in.getInt();
+				final int move = in.getInt();
+				final int round = in.getInt();
+				in.getInt();
+
+				line.setLength(0);
+				line.append(time / 1000).append("us | ")
+						.append(sender < names.size() ? names.get(sender) : String.valueOf(sender)).append(" > ")
+						.append(receiver < names.size() ? names.get(receiver) : String.valueOf(receiver))
+						.append(" | ").append(event).append(" | ").append(move).append(" | ").append(round);
+				System.out.println(line);
+			}
+		}
+	}
+}
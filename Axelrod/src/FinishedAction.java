@@ -0,0 +1,11 @@
+import jade.content.AgentAction;
+
+/**
+ * Action passed as {@link ACLMessage} content for the {@link ControllerAgent} 
+ * when the {@link PlayerAgent} that initiated a game received the response 
+ * of its opponent, meaning the game is over.
+ * 
+ * @author Mathijs van Bremen
+ */
+public class FinishedAction implements AgentAction {
+}
@@ -6,7 +6,8 @@ import jade.content.schema.ObjectSchema;
 import jade.content.schema.PrimitiveSchema;
 
 /**
- * This class will set up the Ontology for this project.
+ * This class will set up the Ontology for this project. The schemas are
+ * built once and shared by the ContentManagers of all agents in this JVM.
  * 
  * @author Mathijs van Bremen
  */
@@ -15,18 +16,15 @@ public class GameOntology extends Ontology implements GameVocabulary {
 	 * Name of this ontology.
 	 */
 	private static final String ONTOLOGY_NAME = "Prisoner-ontology";
-	/**
-	 * Singleton of this ontology class.
-	 */
-	private static Ontology instance = null;
 
 	/**
 	 * Private constructor as this class is a singleton. 
 	 * Will set up the ontology.
 	 */
 	private GameOntology() {
-		// This ontology extends the BasicOntology
-		super(ONTOLOGY_NAME, BasicOntology.getInstance());
+		// This ontology extends the BasicOntology, the introspector caches the
+		// accessors of the actions for all agents sharing this ontology
+		super(ONTOLOGY_NAME, BasicOntology.getInstance(), new CachingIntrospector());
 		
 		try {
 			// Add the Defect and Cooperate actions
@@ -37,24 +35,54 @@ public class GameOntology extends Ontology implements GameVocabulary {
 			add(aas, StartAction.class);
 			// Add the Opponent name slot to the Start action schema
 			aas.add(OPPONENT_NAME, (PrimitiveSchema) getSchema(BasicOntology.STRING), ObjectSchema.MANDATORY);
+			// Add the Finished action
+			add(new AgentActionSchema(FINISHED), FinishedAction.class);
+			// Add the Start batch action
+			final AgentActionSchema batchSchema = new AgentActionSchema(START_BATCH);
+			add(batchSchema, StartBatchAction.class);
+			// Add the Opponent names and Repetitions slots, both containing 
+			// an element for every opponent
+			batchSchema.add(OPPONENT_NAMES, (PrimitiveSchema) getSchema(BasicOntology.STRING), 0, ObjectSchema.UNLIMITED);
+			batchSchema.add(REPETITIONS, (PrimitiveSchema) getSchema(BasicOntology.INTEGER), 0, ObjectSchema.UNLIMITED);
+			// Add the Match action
+			final PrimitiveSchema stringSchema = (PrimitiveSchema) getSchema(BasicOntology.STRING);
+			final PrimitiveSchema integerSchema = (PrimitiveSchema) getSchema(BasicOntology.INTEGER);
+			final AgentActionSchema matchSchema = new AgentActionSchema(MATCH);
+			add(matchSchema, MatchAction.class);
+			matchSchema.add(OPPONENT_NAME, stringSchema, ObjectSchema.MANDATORY);
+			matchSchema.add(ITERATIONS, integerSchema, ObjectSchema.MANDATORY);
+			// Add the Match result action
+			final AgentActionSchema resultSchema = new AgentActionSchema(MATCH_RESULT);
+			add(resultSchema, MatchResult.class);
+			resultSchema.add(OPPONENT_NAME, stringSchema, ObjectSchema.MANDATORY);
+			resultSchema.add(ITERATIONS, integerSchema, ObjectSchema.MANDATORY);
+			resultSchema.add(YEARS_OF_PRISON, integerSchema, ObjectSchema.MANDATORY);
+			resultSchema.add(OPPONENT_YEARS_OF_PRISON, integerSchema, ObjectSchema.MANDATORY);
 		} catch (OntologyException e) {
 			e.printStackTrace();
 		}
 	}
 	
 	/**
-	 * Creates the GameOntology instance if not yet created and returns it
+	 * Returns the GameOntology instance. The instance is created when the
+	 * {@link Holder} class is first used, which the JVM guarantees to happen
+	 * only once, so agents starting at the same time all get the same
+	 * ontology without any locking.
 	 * 
 	 * @return this GameOntology
 	 */
 	public static Ontology getInstance() {
-		// Define a new PrisonerOntology if not yet defined
-		if (instance == null) {
-			instance = new GameOntology();
-		}
-		
-		// Return the instance
-		return instance;
+		return Holder.INSTANCE;
 	}
 
+	/**
+	 * Holder of the singleton of this ontology class, initialized on first
+	 * use of {@link GameOntology#getInstance()}.
+	 */
+	private static class Holder {
+		/**
+		 * Singleton of this ontology class.
+		 */
+		private static final Ontology INSTANCE = new GameOntology();
+	}
 }
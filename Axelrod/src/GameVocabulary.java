@@ -23,4 +23,44 @@ public interface GameVocabulary {
 	 * Field for the Opponent name value for the StartAction schema.
 	 */
 	public static final String OPPONENT_NAME = "Opponent-name";
+	
+	/**
+	 * Field for the FinishedAction schema.
+	 */
+	public static final String FINISHED = "Finished";
+	
+	/**
+	 * Field for the StartBatchAction schema.
+	 */
+	public static final String START_BATCH = "Start-batch";
+	/**
+	 * Field for the Opponent names value for the StartBatchAction schema.
+	 */
+	public static final String OPPONENT_NAMES = "Opponent-names";
+	/**
+	 * Field for the Repetitions value for the StartBatchAction schema.
+	 */
+	public static final String REPETITIONS = "Repetitions";
+	
+	/**
+	 * Field for the MatchAction schema.
+	 */
+	public static final String MATCH = "Match";
+	/**
+	 * Field for the Iterations value for the MatchAction and MatchResult schema.
+	 */
+	public static final String ITERATIONS = "Iterations";
+	
+	/**
+	 * Field for the MatchResult schema.
+	 */
+	public static final String MATCH_RESULT = "Match-result";
+	/**
+	 * Field for the Years of prison value for the MatchResult schema.
+	 */
+	public static final String YEARS_OF_PRISON = "Years-of-prison";
+	/**
+	 * Field for the Opponent years of prison value for the MatchResult schema.
+	 */
+	public static final String OPPONENT_YEARS_OF_PRISON = "Opponent-years-of-prison";
 }
@@ -0,0 +1,188 @@
+import java.lang.reflect.Method;
+
+import jade.core.Profile;
+import jade.core.ResourceManager;
+
+/**
+ * ResourceManager that gives every agent of a container a lightweight thread
+ * instead of a full platform thread, so a single JVM can host many thousands
+ * of {@link PlayerAgent}s. JADE asks the ResourceManager of a container for
+ * the thread of every agent it starts, the agents themselves don't change.
+ *
+ * On Java 24 or newer the agents run on virtual threads, which are
+ * scheduled on the shared fork-join pool of the JVM. JADE blocks the thread
+ * of an idle agent with Object.wait inside a synchronized block. Before
+ * Java 24 that pins the virtual thread to its carrier thread, so as soon as
+ * there are more idle agents than cores no agent can run anymore. Java 21
+ * to 23 therefore don't get virtual threads either. On those and older JVMs
+ * the agents get platform threads with a small stack, which are a lot
+ * cheaper than the default ones but still limited by the OS.
+ *
+ * Use it by setting the resource parameter of the container:
+ * <pre>
+ * -resource LightweightResourceManager
+ * </pre>
+ *
+ * @author Mathijs van Bremen
+ * @see ControllerAgent
+ */
+public class LightweightResourceManager implements ResourceManager {
+	/**
+	 * Stack size of the platform threads used when virtual threads aren't
+	 * supported. Behaviours of the players don't go deep, so this is plenty.
+	 */
+	private static final long STACK_SIZE = 128 * 1024;
+	/**
+	 * First Java version in which a virtual thread waiting inside a
+	 * synchronized block doesn't pin its carrier thread
+	 */
+	private static final int VIRTUAL_THREAD_VERSION = 24;
+	/**
+	 * The method that returns a builder for virtual threads, null if virtual
+	 * threads aren't supported by this JVM
+	 */
+	private static final Method OF_VIRTUAL = getJavaVersion() >= VIRTUAL_THREAD_VERSION
+			? findMethod(Thread.class, "ofVirtual") : null;
+	/**
+	 * boolean indicating whether agents get virtual threads, only true once
+	 * creating a virtual thread succeeded and cleared if creating one fails
+	 */
+	private static volatile boolean virtual = createVirtualThread("probe", new Runnable() {
+		@Override
+		public void run() {
+		}
+	}) != null;
+
+	/**
+	 * ThreadGroup of the agents of this container
+	 */
+	private ThreadGroup agentGroup;
+	/**
+	 * ThreadGroup of the platform threads of this container
+	 */
+	private ThreadGroup systemGroup;
+
+	/**
+	 * Will set up the ThreadGroups of this container.
+	 *
+	 * @param profile the profile of the container
+	 */
+	@Override
+	public void initialize(Profile profile) {
+		agentGroup = new ThreadGroup("JADE-lightweight-agents");
+		systemGroup = new ThreadGroup("JADE-lightweight-system");
+	}
+
+	/**
+	 * Returns a new, not yet started, thread that will run the given Runnable.
+	 * User agents get a lightweight thread, all other threads are normal
+	 * platform threads.
+	 *
+	 * @param type the type of the thread, see {@link ResourceManager}
+	 * @param name the name of the thread
+	 * @param runnable the Runnable the thread will run
+	 * @return the thread
+	 */
+	@Override
+	public Thread getThread(int type, String name, Runnable runnable) {
+		// Only the user agents are started in large amounts
+		if (type != USER_AGENTS) {
+			final Thread thread = new Thread(systemGroup, runnable, name);
+			if (type == TIME_CRITICAL) {
+				thread.setPriority(Thread.MAX_PRIORITY);
+			}
+			return thread;
+		}
+
+		// Prefer a virtual thread if this JVM supports them
+		if (virtual) {
+			final Thread virtualThread = createVirtualThread(name, runnable);
+			if (virtualThread != null) {
+				return virtualThread;
+			}
+			virtual = false;
+		}
+
+		return new Thread(agentGroup, runnable, name, STACK_SIZE);
+	}
+
+	/**
+	 * Will interrupt the threads that are still running. Virtual threads
+	 * don't belong to a ThreadGroup we own, JADE stops those by terminating
+	 * their agents.
+	 */
+	@Override
+	public void releaseResources() {
+		if (agentGroup != null) {
+			agentGroup.interrupt();
+		}
+		if (systemGroup != null) {
+			systemGroup.interrupt();
+		}
+	}
+
+	/**
+	 * Returns whether the agents will run on virtual threads.
+	 *
+	 * @return true if this JVM is Java 24 or newer and creating a virtual
+	 * thread succeeded
+	 */
+	public static boolean isVirtual() {
+		return virtual;
+	}
+
+	/**
+	 * Will create a new, not yet started, virtual thread. Reflection is used
+	 * so this class still compiles and runs on JVMs without virtual threads.
+	 *
+	 * @param name the name of the thread
+	 * @param runnable the Runnable the thread will run
+	 * @return the thread or null if virtual threads aren't supported or
+	 * would be pinned
+	 */
+	private static Thread createVirtualThread(String name, Runnable runnable) {
+		if (OF_VIRTUAL == null) {
+			return null;
+		}
+
+		try {
+			// Thread.ofVirtual().name(name).unstarted(runnable)
+			final Object builder = OF_VIRTUAL.invoke(null);
+			final Class<?> builderClass = OF_VIRTUAL.getReturnType();
+			builderClass.getMethod("name", String.class).invoke(builder, name);
+			return (Thread) builderClass.getMethod("unstarted", Runnable.class).invoke(builder, runnable);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the feature version of this JVM, e.g. 8 for Java 1.8 and 24
+	 * for Java 24.
+	 *
+	 * @return the version
+	 */
+	private static int getJavaVersion() {
+		final String version = System.getProperty("java.specification.version", "1.8");
+		try {
+			return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+		} catch (NumberFormatException e) {
+			return 8;
+		}
+	}
+
+	/**
+	 * Returns the public method without parameters with the given name.
+	 *
+	 * @param type the class containing the method
+	 * @param name the name of the method
+	 * @return the method or null if it doesn't exist
+	 */
+	private static Method findMethod(Class<?> type, String name) {
+		try {
+			return type.getMethod(name);
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+}
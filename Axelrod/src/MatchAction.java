@@ -0,0 +1,65 @@
+import jade.content.AgentAction;
+
+/**
+ * Action passed as {@link ACLMessage} content for the receiver 
+ * when {@link ControllerAgent} wants {@link PlayerAgent} to play a match 
+ * of a number of iterations against a certain opponent. All moves of the 
+ * match are exchanged within the conversation of this message, after the 
+ * last iteration the {@link PlayerAgent} sends a {@link MatchResult}.
+ * 
+ * @author Mathijs van Bremen
+ */
+public class MatchAction implements AgentAction {
+	/**
+	 * Name of the opponent we need to play the match against.
+	 */
+	private String opponentName;
+	/**
+	 * Amount of games the match consists of.
+	 */
+	private int iterations;
+	
+	/**
+	 * Public constructor required by JADE
+	 */
+	public MatchAction() {
+		this.opponentName = "";
+		this.iterations = 1;
+	}
+	
+	/**
+	 * Sets the opponent's name
+	 * 
+	 * @param opponentName name of the opponent's agent
+	 */
+	public void setOpponentName(String opponentName) {
+		this.opponentName = opponentName;
+	}
+	
+	/**
+	 * Returns the set opponent's name
+	 * 
+	 * @return name of the opponent's agent
+	 */
+	public String getOpponentName() {
+		return opponentName;
+	}
+	
+	/**
+	 * Sets the amount of games of the match
+	 * 
+	 * @param iterations amount of games
+	 */
+	public void setIterations(int iterations) {
+		this.iterations = iterations;
+	}
+	
+	/**
+	 * Returns the amount of games of the match
+	 * 
+	 * @return amount of games
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+}
@@ -0,0 +1,108 @@
+import jade.content.AgentAction;
+
+/**
+ * Action passed as {@link ACLMessage} content for the {@link ControllerAgent} 
+ * when the {@link PlayerAgent} that initiated a match played all of its 
+ * iterations. Summarises the match so the controller doesn't have to follow 
+ * every single game.
+ * 
+ * @author Mathijs van Bremen
+ * @see MatchAction
+ */
+public class MatchResult implements AgentAction {
+	/**
+	 * Name of the opponent the match was played against.
+	 */
+	private String opponentName;
+	/**
+	 * Amount of games played in the match.
+	 */
+	private int iterations;
+	/**
+	 * Years of prison we got in the match.
+	 */
+	private int yearsOfPrison;
+	/**
+	 * Years of prison the opponent got in the match.
+	 */
+	private int opponentYearsOfPrison;
+	
+	/**
+	 * Public constructor required by JADE
+	 */
+	public MatchResult() {
+		this.opponentName = "";
+	}
+	
+	/**
+	 * Sets the opponent's name
+	 * 
+	 * @param opponentName name of the opponent's agent
+	 */
+	public void setOpponentName(String opponentName) {
+		this.opponentName = opponentName;
+	}
+	
+	/**
+	 * Returns the set opponent's name
+	 * 
+	 * @return name of the opponent's agent
+	 */
+	public String getOpponentName() {
+		return opponentName;
+	}
+	
+	/**
+	 * Sets the amount of games played in the match
+	 * 
+	 * @param iterations amount of games
+	 */
+	public void setIterations(int iterations) {
+		this.iterations = iterations;
+	}
+	
+	/**
+	 * Returns the amount of games played in the match
+	 * 
+	 * @return amount of games
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+	
+	/**
+	 * Sets the years of prison we got in the match
+	 * 
+	 * @param yearsOfPrison our years of prison
+	 */
+	public void setYearsOfPrison(int yearsOfPrison) {
+		this.yearsOfPrison = yearsOfPrison;
+	}
+	
+	/**
+	 * Returns the years of prison we got in the match
+	 * 
+	 * @return our years of prison
+	 */
+	public int getYearsOfPrison() {
+		return yearsOfPrison;
+	}
+	
+	/**
+	 * Sets the years of prison the opponent got in the match
+	 * 
+	 * @param opponentYearsOfPrison the opponent's years of prison
+	 */
+	public void setOpponentYearsOfPrison(int opponentYearsOfPrison) {
+		this.opponentYearsOfPrison = opponentYearsOfPrison;
+	}
+	
+	/**
+	 * Returns the years of prison the opponent got in the match
+	 * 
+	 * @return the opponent's years of prison
+	 */
+	public int getOpponentYearsOfPrison() {
+		return opponentYearsOfPrison;
+	}
+}
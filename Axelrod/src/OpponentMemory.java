@@ -0,0 +1,83 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Memory of the opponents we played against. Every opponent gets a dense
+ * int id when it is registered, after which the amount of moves it made
+ * against us is counted in a primitive array indexed by that id. What the
+ * opponent played is kept in the state of the {@link StrategyMachine}.
+ *
+ * @author Mathijs van Bremen
+ * @see Strategy
+ */
+public class OpponentMemory {
+	/**
+	 * Initial amount of opponents we have room for
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+	/**
+	 * {@link Map} containing the name of an opponent's agent and its id,
+	 * only used when an opponent registers or is looked up by name
+	 */
+	private final Map<String, Integer> idMap = new HashMap<>();
+	/**
+	 * Amount of moves every opponent made against us
+	 */
+	private int[] moveCount = new int[INITIAL_CAPACITY];
+	/**
+	 * Amount of registered opponents
+	 */
+	private int size = 0;
+
+	/**
+	 * Will register the opponent with the given name if not registered yet
+	 * and return its id.
+	 *
+	 * @param opponentName name of the opponent's agent
+	 * @return the id of the opponent
+	 */
+	public int register(String opponentName) {
+		final Integer id = idMap.get(opponentName);
+		if (id != null) {
+			return id;
+		}
+
+		// Make room for the new opponent if needed
+		if (size == moveCount.length) {
+			moveCount = Arrays.copyOf(moveCount, size * 2);
+		}
+		idMap.put(opponentName, size);
+
+		return size++;
+	}
+
+	/**
+	 * Returns the amount of registered opponents. Ids range from 0 up to
+	 * this amount.
+	 *
+	 * @return the amount of registered opponents
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Will count a move the opponent made against us.
+	 *
+	 * @param id the id of the opponent
+	 */
+	public void record(int id) {
+		moveCount[id]++;
+	}
+
+	/**
+	 * Returns the amount of moves the opponent made against us.
+	 *
+	 * @param id the id of the opponent
+	 * @return the amount of moves
+	 */
+	public int getMoveCount(int id) {
+		return moveCount[id];
+	}
+}
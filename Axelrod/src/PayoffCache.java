@@ -0,0 +1,158 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of the outcome of matches between two deterministic strategies.
+ * When neither strategy makes random moves, a match of a given amount of
+ * rounds always ends the same way, so it only has to be played once for
+ * every combination of strategies, rounds and payoff matrix. Only matches
+ * involving a strategy that moves by chance still have to be played game
+ * by game.
+ *
+ * The cache is shared by all {@link TournamentEngine}s in this JVM, which
+ * the {@link SweepRunner} plays on multiple threads at once.
+ *
+ * @author Mathijs van Bremen
+ * @see TournamentEngine, StrategyMachine#isDeterministic()
+ */
+public class PayoffCache {
+	/**
+	 * Singleton of this class
+	 */
+	private static final PayoffCache INSTANCE = new PayoffCache();
+
+	/**
+	 * {@link ConcurrentMap} containing the outcome of every match played so far
+	 */
+	private final ConcurrentMap<Key, long[]> outcomes = new ConcurrentHashMap<>();
+
+	/**
+	 * Private constructor as this class is a singleton.
+	 */
+	private PayoffCache() {
+	}
+
+	/**
+	 * Returns the cache shared by all engines in this JVM.
+	 *
+	 * @return the PayoffCache
+	 */
+	public static PayoffCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the outcome of a match of the given amount of rounds between
+	 * players of the given deterministic strategies, both starting in their
+	 * initial state. Every round both players initiate a game, just like in
+	 * the {@link TournamentEngine}.
+	 *
+	 * @param machine the strategy of the first player
+	 * @param opponentMachine the strategy of the second player
+	 * @param rounds the amount of rounds
+	 * @param payoffMatrix the payoff matrix to use
+	 * @return the years of prison of both players followed by the final
+	 * state of both players, the array is shared so it must not be changed
+	 * @throws IllegalArgumentException if one of the strategies isn't deterministic
+	 */
+	public long[] getOutcome(StrategyMachine machine, StrategyMachine opponentMachine,
+			int rounds, PayoffMatrix payoffMatrix) {
+		if (!machine.isDeterministic() || !opponentMachine.isDeterministic()) {
+			throw new IllegalArgumentException(machine + " against " + opponentMachine + " isn't deterministic");
+		}
+
+		final Key key = new Key(machine, opponentMachine, rounds, payoffMatrix);
+		long[] outcome = outcomes.get(key);
+		if (outcome == null) {
+			// Threads racing on the same match compute the same outcome
+			outcome = play(machine, opponentMachine, rounds, payoffMatrix);
+			outcomes.putIfAbsent(key, outcome);
+		}
+
+		return outcome;
+	}
+
+	/**
+	 * Will play a match between players of the given strategies.
+	 *
+	 * @param machine the strategy of the first player
+	 * @param opponentMachine the strategy of the second player
+	 * @param rounds the amount of rounds
+	 * @param payoffMatrix the payoff matrix to use
+	 * @return the outcome, see {@link #getOutcome}
+	 */
+	private static long[] play(StrategyMachine machine, StrategyMachine opponentMachine,
+			int rounds, PayoffMatrix payoffMatrix) {
+		long years = 0;
+		long opponentYears = 0;
+		int state = machine.getInitialState();
+		int opponentState = opponentMachine.getInitialState();
+		for (int game = 0; game < rounds * 2; game++) {
+			// Deterministic strategies don't need a Random
+			final int move = machine.getMove(state, null);
+			final int opponentMove = opponentMachine.getMove(opponentState, null);
+
+			years += payoffMatrix.getYears(move, opponentMove);
+			opponentYears += payoffMatrix.getYears(opponentMove, move);
+			state = machine.getNextState(state, move, opponentMove);
+			opponentState = opponentMachine.getNextState(opponentState, opponentMove, move);
+		}
+
+		return new long[] { years, opponentYears, state, opponentState };
+	}
+
+	/**
+	 * Key of a match in the cache.
+	 */
+	private static class Key {
+		/**
+		 * The strategy of the first player
+		 */
+		private final StrategyMachine machine;
+		/**
+		 * The strategy of the second player
+		 */
+		private final StrategyMachine opponentMachine;
+		/**
+		 * The amount of rounds
+		 */
+		private final int rounds;
+		/**
+		 * The payoff matrix
+		 */
+		private final PayoffMatrix payoffMatrix;
+
+		/**
+		 * Constructor that will simply set given parameters
+		 *
+		 * @param machine the strategy of the first player
+		 * @param opponentMachine the strategy of the second player
+		 * @param rounds the amount of rounds
+		 * @param payoffMatrix the payoff matrix
+		 */
+		private Key(StrategyMachine machine, StrategyMachine opponentMachine, int rounds,
+				PayoffMatrix payoffMatrix) {
+			this.machine = machine;
+			this.opponentMachine = opponentMachine;
+			this.rounds = rounds;
+			this.payoffMatrix = payoffMatrix;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+
+			return machine == other.machine && opponentMachine == other.opponentMachine
+					&& rounds == other.rounds && payoffMatrix.equals(other.payoffMatrix);
+		}
+
+		@Override
+		public int hashCode() {
+			return ((machine.hashCode() * 31 + opponentMachine.hashCode()) * 31 + rounds) * 31
+					+ payoffMatrix.hashCode();
+		}
+	}
+}
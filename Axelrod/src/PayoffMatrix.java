@@ -0,0 +1,134 @@
+import java.util.Arrays;
+
+/**
+ * Payoff matrix of the prisoner's dilemma, containing the amount of years
+ * of prison a player gets for each combination of moves. Moves are
+ * represented by the {@link #COOPERATE} and {@link #DEFECT} constants so the
+ * matrix can be used without creating any objects.
+ *
+ * @author Mathijs van Bremen
+ * @see PlayerAgent, TournamentEngine
+ */
+public class PayoffMatrix {
+	/**
+	 * Move of a player that cooperates
+	 */
+	public static final int COOPERATE = 0;
+	/**
+	 * Move of a player that defects
+	 */
+	public static final int DEFECT = 1;
+	/**
+	 * Move of a player we haven't played against yet
+	 */
+	public static final int NONE = -1;
+	/**
+	 * Amount of years to add when both agents cooperate
+	 */
+	private static final int CC_YEARS = 1;
+	/**
+	 * Amount of years to add when both agents defect
+	 */
+	private static final int DD_YEARS = 3;
+	/**
+	 * Amount of years to add when we cooperate but opponent defects
+	 */
+	private static final int CD_YEARS = 5;
+	/**
+	 * Amount of years to add when we defect but opponent cooperates
+	 */
+	private static final int DC_YEARS = 0;
+	/**
+	 * The payoff matrix used in the tournament
+	 */
+	public static final PayoffMatrix DEFAULT = new PayoffMatrix(CC_YEARS, DD_YEARS, CD_YEARS, DC_YEARS);
+
+	/**
+	 * The years of prison indexed by (our move << 1) | opponent's move
+	 */
+	private final int[] years = new int[4];
+
+	/**
+	 * Constructor that will simply set given parameters
+	 *
+	 * @param ccYears years when both agents cooperate
+	 * @param ddYears years when both agents defect
+	 * @param cdYears years when we cooperate but opponent defects
+	 * @param dcYears years when we defect but opponent cooperates
+	 */
+	public PayoffMatrix(int ccYears, int ddYears, int cdYears, int dcYears) {
+		years[(COOPERATE << 1) | COOPERATE] = ccYears;
+		years[(DEFECT << 1) | DEFECT] = ddYears;
+		years[(COOPERATE << 1) | DEFECT] = cdYears;
+		years[(DEFECT << 1) | COOPERATE] = dcYears;
+	}
+
+	/**
+	 * Returns the payoff matrix written as cc/dd/cd/dc, like "1/3/5/0" for 
+	 * the {@link #DEFAULT} one.
+	 *
+	 * @param value the years of prison separated by slashes
+	 * @return the PayoffMatrix
+	 * @throws IllegalArgumentException if the value doesn't contain four numbers
+	 */
+	public static PayoffMatrix parse(String value) {
+		final String[] parts = value.trim().split("/");
+		if (parts.length != 4) {
+			throw new IllegalArgumentException("Expected cc/dd/cd/dc years, got " + value);
+		}
+
+		return new PayoffMatrix(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()),
+				Integer.parseInt(parts[2].trim()), Integer.parseInt(parts[3].trim()));
+	}
+
+	/**
+	 * Returns the years of prison we get for the given moves.
+	 *
+	 * @param ourMove the move we made
+	 * @param opponentMove the move the opponent made
+	 * @return the years of prison we get
+	 */
+	public int getYears(int ourMove, int opponentMove) {
+		return years[(ourMove << 1) | opponentMove];
+	}
+
+	/**
+	 * Returns whether the given object is a payoff matrix with the same
+	 * years of prison for every combination of moves.
+	 *
+	 * @param obj the object to compare with
+	 * @return true if both give the same years of prison
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof PayoffMatrix)) {
+			return false;
+		}
+
+		return Arrays.equals(years, ((PayoffMatrix) obj).years);
+	}
+
+	/**
+	 * Returns a hash code based on the years of prison.
+	 *
+	 * @return the hash code
+	 */
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(years);
+	}
+
+	/**
+	 * Returns this payoff matrix in the format read by {@link #parse(String)}.
+	 *
+	 * @return the years of prison as cc/dd/cd/dc
+	 */
+	@Override
+	public String toString() {
+		return getYears(COOPERATE, COOPERATE) + "/" + getYears(DEFECT, DEFECT) + "/"
+				+ getYears(COOPERATE, DEFECT) + "/" + getYears(DEFECT, COOPERATE);
+	}
+}
@@ -1,45 +1,53 @@
-import jade.content.Concept;
+import java.util.concurrent.atomic.LongAdder;
+
+import jade.core.AID;
 import jade.core.behaviours.Behaviour;
 import jade.core.behaviours.CyclicBehaviour;
-import jade.core.behaviours.OneShotBehaviour;
 import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
 
 /**
  * Agent that can play the prisoner's dilemma with other PlayerAgents.
- * Will keep track of the total years of prison it has.
+ * Will keep track of the total years of prison it has in the {@link Scoreboard}.
  * 
  * @author Mathijs van Bremen
  * @see ControllerAgent
  */
 public class PlayerAgent extends BaseAgent implements GameVocabulary {	
 	/**
-	 * Amount of years to add when both agents cooperate
+	 * Maximum amount of games we initiated that can run at the same time
 	 */
-	private static final int CC_YEARS = 1;
+	private static final int MAX_ACTIVE_GAMES = 16;
 	/**
-	 * Amount of years to add when both agents defect
+	 * Maximum amount of messages in our message queue
 	 */
-	private static final int DD_YEARS = 3;
+	private static final int INBOX_SIZE = 1024;
 	/**
-	 * Amount of years to add when we cooperate but opponent defects
+	 * The payoff matrix used to determine the years of prison
 	 */
-	private static final int CD_YEARS = 5;
+	private final PayoffMatrix payoffMatrix = PayoffMatrix.DEFAULT;
 	/**
-	 * Amount of years to add when we defect but opponent cooperates
+	 * The total years of prison, kept in the {@link Scoreboard}
 	 */
-	private static final int DC_YEARS = 0;
+	private LongAdder yearsOfPrison;
+	
 	/**
-	 * The total years of prison
+	 * The StrategyType passed via the arguments on setup
 	 */
-	private long yearsOfPrison = 0;
-	
+	private Strategy.StrategyType strategyType = Strategy.StrategyType.UNKNOWN;
 	/**
 	 * The Strategy passed via the arguments on setup
 	 */
 	private Strategy strategy;
+	/**
+	 * The {@link AID} of the {@link ControllerAgent} passed via the arguments 
+	 * on setup, null if not passed
+	 */
+	private AID controller;
 
 	/**
-	 * Will get the {@link Strategy} from the arguments
+	 * Will get the {@link Strategy} and the controller from the arguments and 
+	 * limit the size of the message queue.
 	 */
 	@Override
 	protected void onSetup() {
@@ -47,14 +55,43 @@ public class PlayerAgent extends BaseAgent implements GameVocabulary {
 		final Object[] args = getArguments();
 		if (args != null) {
 			// Get the strategy from the arguments and save it
-			strategy = new Strategy(this, (Strategy.StrategyType) args[0]);
+			strategyType = (Strategy.StrategyType) args[0];
+			strategy = new Strategy(this, strategyType);
+			// Get the controller from the arguments if given
+			if (args.length > 1) {
+				controller = (AID) args[1];
+			}
+		}
+		
+		// Make sure the message queue can't grow without limits
+		setQueueSize(INBOX_SIZE);
+		
+		// Let the other players know our StrategyType and keep our score
+		yearsOfPrison = Scoreboard.getInstance().register(getName(), strategyType);
+	}
+
+	/**
+	 * Will close the {@link Strategy} so its journal is released.
+	 */
+	@Override
+	protected void takeDown() {
+		if (strategy != null) {
+			strategy.close();
 		}
 	}
 	
 	/**
 	 * Returns a new Behaviour for this PlayerAgent. This will be a 
-	 * CyclicBehaviour that will simply wait for messages and let the 
-	 * {@link Strategy} class handle it.
+	 * CyclicBehaviour that will take the messages of the games we're playing 
+	 * out of the message queue and let the {@link Strategy} class handle them. 
+	 * When there are no messages the Behaviour blocks until a new message 
+	 * arrives, so other Behaviours of this agent can still run. 
+	 * 
+	 * Once {@link #MAX_ACTIVE_GAMES} games we initiated are still running, 
+	 * new {@link StartAction}s of the controller are refused so the controller 
+	 * can send them again later instead of filling up our message queue. As 
+	 * the message queue is bounded a move may still get lost, so the 
+	 * Behaviour also wakes up when a game we initiated times out.
 	 * 
 	 * @return Returns a {@link Behaviour}
 	 * @see CyclicBehaviour
@@ -62,13 +99,74 @@ public class PlayerAgent extends BaseAgent implements GameVocabulary {
 	@Override
 	protected Behaviour getBehaviour() {
 		return new CyclicBehaviour(this) {
+			/**
+			 * Template matching the messages sent by the controller
+			 */
+			private MessageTemplate controllerTemplate;
+			/**
+			 * Template matching the messages of the games with other players
+			 */
+			private MessageTemplate gameTemplate;
+			
+			/**
+			 * Called before this Behaviour runs for the first time.
+			 */
+			@Override
+			public void onStart() {
+				// Games are played in our ontology and every game has a conversation id
+				final MessageTemplate ontologyTemplate = MessageTemplate.and(
+						MessageTemplate.MatchOntology(getOntology().getName()), 
+						new MessageTemplate(new HasConversationId()));
+				
+				// The controller is only known after the setup, if not passed 
+				// handle its messages like all other ones
+				if (controller != null) {
+					controllerTemplate = MessageTemplate.and(ontologyTemplate, MessageTemplate.MatchSender(controller));
+					gameTemplate = MessageTemplate.and(ontologyTemplate, MessageTemplate.not(MessageTemplate.MatchSender(controller)));
+				} else {
+					gameTemplate = ontologyTemplate;
+				}
+			}
+			
 			/**
 			 * Called when this Behaviour will be ran.
 			 */
 			@Override
 			public void action() {
-				// Block until we receive a message
-				final ACLMessage msg = blockingReceive();
+				// Give up on the games of which a message got lost
+				final long now = System.currentTimeMillis();
+				if (now >= strategy.getNextDeadline()) {
+					strategy.expireGames(now);
+				}
+				
+				// Handle the messages of running games first so they can finish
+				ACLMessage msg = myAgent.receive(gameTemplate);
+				if (msg == null && controllerTemplate != null) {
+					msg = myAgent.receive(controllerTemplate);
+					
+					// Refuse to start new games when we're running too many
+					if (msg != null && strategy.getActiveGames() >= MAX_ACTIVE_GAMES) {
+						final ACLMessage reply = msg.createReply();
+						reply.setPerformative(ACLMessage.REFUSE);
+						myAgent.send(reply);
+						return;
+					}
+				}
+				if (msg == null) {
+					// Drop messages that aren't part of any game
+					if (myAgent.receive() != null) {
+						return;
+					}
+					
+					// Wait for the next message or until the next game times out
+					final long deadline = strategy.getNextDeadline();
+					if (deadline == Long.MAX_VALUE) {
+						block();
+					} else {
+						block(Math.max(1, deadline - now));
+					}
+					return;
+				}
 				
 				// Let the Strategy handle the message
 				strategy.handleMsg(msg);				
@@ -77,34 +175,48 @@ public class PlayerAgent extends BaseAgent implements GameVocabulary {
 	}
 	
 	/**
-	 * Will update the years of prison depending on the Action we sent and the Action 
-	 * we received. These actions will be of {@link CooperateAction} and {@link DefectAction}.
+	 * Will update the years of prison depending on the move we sent and the move 
+	 * we received. These moves will be {@link PayoffMatrix#COOPERATE} or 
+	 * {@link PayoffMatrix#DEFECT}.
 	 * 
-	 * @param sentAction action we sent to the opponent 
-	 * @param receivedAction action we received from the opponent
+	 * @param sentMove move we sent to the opponent 
+	 * @param receivedMove move we received from the opponent
+	 * @param opponentType the StrategyType of the opponent
 	 */
-	protected void updateYearsOfPrison(Concept sentAction, Concept receivedAction) {
-		// Check if the sent action is cooperate or defect
-		if (sentAction instanceof CooperateAction) {
-			// Check if the received action is cooperate or defect
-			if (receivedAction instanceof CooperateAction) {
-				// Both cooperate, so add CC_YEARS to total
-				yearsOfPrison += CC_YEARS;		
-			} else {
-				// We cooperated but opponent didn't, add CD_YEARS to total
-				yearsOfPrison += CD_YEARS;				
-			}
-		} else {
-			// Check if the received action is cooperate or defect
-			if (receivedAction instanceof CooperateAction) {
-				// We defected but opponent didn't, add DC_YEARS to total
-				yearsOfPrison += DC_YEARS;				
-			} else {
-				// Both defect, so add DD_YEARS to total
-				yearsOfPrison += DD_YEARS;				
-			}			
-		}
+	protected void updateYearsOfPrison(int sentMove, int receivedMove, Strategy.StrategyType opponentType) {
+		// Look up the years for both moves in the payoff matrix
+		final int years = payoffMatrix.getYears(sentMove, receivedMove);
 		
-		System.out.println(this.getName() + " | " + yearsOfPrison);
+		Scoreboard.getInstance().record(yearsOfPrison, strategyType, opponentType, sentMove, receivedMove, years);
+	}
+	
+	/**
+	 * Returns the payoff matrix used to determine the years of prison.
+	 * 
+	 * @return the {@link PayoffMatrix}
+	 */
+	protected PayoffMatrix getPayoffMatrix() {
+		return payoffMatrix;
+	}
+	
+	/**
+	 * Expression matching the messages that have a conversation id.
+	 */
+	private static class HasConversationId implements MessageTemplate.MatchExpression {
+		/**
+		 * Required as MessageTemplates are serializable
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Returns whether the given message has a conversation id.
+		 * 
+		 * @param msg the message to check
+		 * @return true if the message has a conversation id
+		 */
+		@Override
+		public boolean match(ACLMessage msg) {
+			return msg.getConversationId() != null;
+		}
 	}
 }
@@ -0,0 +1,82 @@
+/**
+ * Round-robin schedule created with the circle method. The pairings of
+ * a tournament round are divided into slots in which no player appears
+ * twice, so all pairings of a single slot can be played at the same time.
+ *
+ * For an even amount of players every slot contains players / 2 pairings
+ * and there are players - 1 slots. For an odd amount of players a bye is
+ * added, meaning every slot has one player that does not play.
+ *
+ * @author Mathijs van Bremen
+ * @see ControllerAgent
+ */
+public class RoundRobinSchedule {
+	/**
+	 * The pairings per slot, stored as player index pairs
+	 * (first, second, first, second, ...)
+	 */
+	private final int[][] slots;
+
+	/**
+	 * Constructor that will set up the schedule for the given amount of players
+	 *
+	 * @param amountOfPlayers the amount of players in the tournament
+	 */
+	public RoundRobinSchedule(int amountOfPlayers) {
+		// Add a bye in case of an odd amount of players
+		final int size = amountOfPlayers % 2 == 0 ? amountOfPlayers : amountOfPlayers + 1;
+		// No pairings possible with less than two players
+		if (amountOfPlayers < 2) {
+			slots = new int[0][];
+			return;
+		}
+
+		// Circle of player indices, the first index stays fixed while the rest rotate
+		final int[] circle = new int[size];
+		for (int i = 0; i < size; i++) {
+			circle[i] = i;
+		}
+
+		slots = new int[size - 1][];
+		for (int slot = 0; slot < size - 1; slot++) {
+			// Pair the players from both ends of the circle, skipping the bye
+			final int[] pairs = new int[amountOfPlayers / 2 * 2];
+			int count = 0;
+			for (int i = 0; i < size / 2; i++) {
+				final int first = circle[i];
+				final int second = circle[size - 1 - i];
+				if (first < amountOfPlayers && second < amountOfPlayers) {
+					pairs[count++] = Math.min(first, second);
+					pairs[count++] = Math.max(first, second);
+				}
+			}
+			slots[slot] = pairs;
+
+			// Rotate every index but the first one position clockwise
+			final int last = circle[size - 1];
+			System.arraycopy(circle, 1, circle, 2, size - 2);
+			circle[1] = last;
+		}
+	}
+
+	/**
+	 * Returns the amount of slots in a single round.
+	 *
+	 * @return the amount of slots
+	 */
+	public int getSlotCount() {
+		return slots.length;
+	}
+
+	/**
+	 * Returns the pairings of the given slot as player index pairs, where
+	 * index 2 * i is the first and 2 * i + 1 the second player of pairing i.
+	 * The returned array should not be modified.
+	 *
+	 * @param slot the slot to get the pairings for
+	 * @return the pairings of the slot
+	 */
+	public int[] getPairs(int slot) {
+		return slots[slot];
+	}
+}
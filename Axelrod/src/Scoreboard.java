@@ -0,0 +1,260 @@
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Scoreboard shared by all agents in this JVM. The {@link PlayerAgent}s add
+ * the years of prison of every game to it and the {@link ControllerAgent}
+ * takes a {@link Snapshot} of it whenever all games of a round are finished.
+ *
+ * All counters are {@link LongAdder}s, which spread concurrent updates over
+ * multiple cells, so players updating the scoreboard at the same time don't
+ * have to wait for each other and never block on the console.
+ *
+ * @author Mathijs van Bremen
+ * @see PlayerAgent, ControllerAgent
+ */
+public class Scoreboard {
+	/**
+	 * Amount of StrategyTypes
+	 */
+	private static final int STRATEGY_COUNT = Strategy.StrategyType.values().length;
+	/**
+	 * Singleton of this class, created after {@link #STRATEGY_COUNT} is set.
+	 */
+	private static final Scoreboard INSTANCE = new Scoreboard();
+
+	/**
+	 * {@link ConcurrentMap} containing the name of a player's agent and its StrategyType
+	 */
+	private final ConcurrentMap<String, Strategy.StrategyType> strategyTypes = new ConcurrentHashMap<>();
+	/**
+	 * {@link ConcurrentMap} containing the name of a player's agent and its years of prison
+	 */
+	private final ConcurrentMap<String, LongAdder> playerYears = new ConcurrentHashMap<>();
+	/**
+	 * Years of prison of every StrategyType, indexed by its ordinal
+	 */
+	private final LongAdder[] strategyYears = createAdders(STRATEGY_COUNT);
+	/**
+	 * Years of prison of every StrategyType against every other StrategyType,
+	 * indexed by ordinal * {@link #STRATEGY_COUNT} + opponent's ordinal
+	 */
+	private final LongAdder[] pairingYears = createAdders(STRATEGY_COUNT * STRATEGY_COUNT);
+	/**
+	 * Amount of times every combination of moves was played, indexed like
+	 * the {@link PayoffMatrix} by (our move << 1) | opponent's move
+	 */
+	private final LongAdder[] outcomes = createAdders(4);
+
+	/**
+	 * Private constructor as this class is a singleton.
+	 */
+	private Scoreboard() {
+	}
+
+	/**
+	 * Returns the scoreboard shared by all agents in this JVM.
+	 *
+	 * @return the Scoreboard
+	 */
+	public static Scoreboard getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Will register the player with the given name and StrategyType and
+	 * return the counter for its years of prison.
+	 *
+	 * @param playerName name of the player's agent
+	 * @param strategyType the StrategyType of the player
+	 * @return the counter for the years of prison of the player
+	 */
+	public LongAdder register(String playerName, Strategy.StrategyType strategyType) {
+		strategyTypes.put(playerName, strategyType);
+		// Keep the counter if the player was registered before
+		final LongAdder years = new LongAdder();
+		final LongAdder existing = playerYears.putIfAbsent(playerName, years);
+
+		return existing != null ? existing : years;
+	}
+
+	/**
+	 * Returns the StrategyType of the player with the given name.
+	 *
+	 * @param playerName name of the player's agent
+	 * @return the StrategyType or {@link Strategy.StrategyType#UNKNOWN} if
+	 * the player isn't registered
+	 */
+	public Strategy.StrategyType getStrategyType(String playerName) {
+		final Strategy.StrategyType strategyType = strategyTypes.get(playerName);
+
+		return strategyType != null ? strategyType : Strategy.StrategyType.UNKNOWN;
+	}
+
+	/**
+	 * Will add the result of a single game, as seen by one of the players.
+	 * Every game is recorded by both players.
+	 *
+	 * @param player the counter of the player as returned by {@link #register}
+	 * @param strategyType the StrategyType of the player
+	 * @param opponentType the StrategyType of the opponent
+	 * @param move the move the player made
+	 * @param opponentMove the move the opponent made
+	 * @param years the years of prison the player got
+	 */
+	public void record(LongAdder player, Strategy.StrategyType strategyType, Strategy.StrategyType opponentType,
+			int move, int opponentMove, int years) {
+		player.add(years);
+		strategyYears[strategyType.ordinal()].add(years);
+		pairingYears[strategyType.ordinal() * STRATEGY_COUNT + opponentType.ordinal()].add(years);
+		outcomes[(move << 1) | opponentMove].increment();
+	}
+
+	/**
+	 * Returns a copy of the current values of all counters. Games that are
+	 * recorded while the snapshot is taken may or may not be part of it, so
+	 * take it when no games are being played for exact values.
+	 *
+	 * @return the Snapshot
+	 */
+	public Snapshot snapshot() {
+		final String[] playerNames = playerYears.keySet().toArray(new String[0]);
+		Arrays.sort(playerNames);
+		final long[] players = new long[playerNames.length];
+		for (int i = 0; i < playerNames.length; i++) {
+			players[i] = playerYears.get(playerNames[i]).sum();
+		}
+
+		return new Snapshot(playerNames, players, sum(strategyYears), sum(pairingYears), sum(outcomes));
+	}
+
+	/**
+	 * Returns the sum of every given counter.
+	 *
+	 * @param adders the counters
+	 * @return the sums, indexed like the counters
+	 */
+	private static long[] sum(LongAdder[] adders) {
+		final long[] sums = new long[adders.length];
+		for (int i = 0; i < adders.length; i++) {
+			sums[i] = adders[i].sum();
+		}
+
+		return sums;
+	}
+
+	/**
+	 * Returns the given amount of new counters.
+	 *
+	 * @param size the amount of counters
+	 * @return the counters
+	 */
+	private static LongAdder[] createAdders(int size) {
+		final LongAdder[] adders = new LongAdder[size];
+		for (int i = 0; i < size; i++) {
+			adders[i] = new LongAdder();
+		}
+
+		return adders;
+	}
+
+	/**
+	 * Copy of the values of the {@link Scoreboard} at a certain moment.
+	 */
+	public static class Snapshot {
+		/**
+		 * Names of the players, sorted
+		 */
+		private final String[] playerNames;
+		/**
+		 * Years of prison of every player, indexed like the {@link #playerNames}
+		 */
+		private final long[] playerYears;
+		/**
+		 * Years of prison of every StrategyType
+		 */
+		private final long[] strategyYears;
+		/**
+		 * Years of prison of every StrategyType against every other StrategyType
+		 */
+		private final long[] pairingYears;
+		/**
+		 * Amount of times every combination of moves was played
+		 */
+		private final long[] outcomes;
+
+		/**
+		 * Constructor that will simply set given parameters
+		 *
+		 * @param playerNames names of the players
+		 * @param playerYears years of prison of every player
+		 * @param strategyYears years of prison of every StrategyType
+		 * @param pairingYears years of prison of every pairing of StrategyTypes
+		 * @param outcomes amount of times every combination of moves was played
+		 */
+		private Snapshot(String[] playerNames, long[] playerYears, long[] strategyYears,
+				long[] pairingYears, long[] outcomes) {
+			this.playerNames = playerNames;
+			this.playerYears = playerYears;
+			this.strategyYears = strategyYears;
+			this.pairingYears = pairingYears;
+			this.outcomes = outcomes;
+		}
+
+		/**
+		 * Returns the years of prison of the given StrategyType.
+		 *
+		 * @param strategyType the StrategyType
+		 * @return the years of prison
+		 */
+		public long getYears(Strategy.StrategyType strategyType) {
+			return strategyYears[strategyType.ordinal()];
+		}
+
+		/**
+		 * Returns the years of prison the given StrategyType got against the
+		 * other given StrategyType.
+		 *
+		 * @param strategyType the StrategyType
+		 * @param opponentType the StrategyType of the opponent
+		 * @return the years of prison
+		 */
+		public long getYears(Strategy.StrategyType strategyType, Strategy.StrategyType opponentType) {
+			return pairingYears[strategyType.ordinal() * STRATEGY_COUNT + opponentType.ordinal()];
+		}
+
+		/**
+		 * Returns the amount of times a player made the given move while the
+		 * opponent made the other given move.
+		 *
+		 * @param move {@link PayoffMatrix#COOPERATE} or {@link PayoffMatrix#DEFECT}
+		 * @param opponentMove {@link PayoffMatrix#COOPERATE} or {@link PayoffMatrix#DEFECT}
+		 * @return the amount of times
+		 */
+		public long getOutcomes(int move, int opponentMove) {
+			return outcomes[(move << 1) | opponentMove];
+		}
+
+		/**
+		 * Will print the years of prison of every player and the amount of
+		 * times every combination of moves was played.
+		 *
+		 * @param out the stream to print to
+		 */
+		public void print(PrintStream out) {
+			final StringBuilder builder = new StringBuilder();
+			for (int i = 0; i < playerNames.length; i++) {
+				builder.append(playerNames[i]).append(" | ").append(playerYears[i]).append('\n');
+			}
+			builder.append("CC ").append(getOutcomes(PayoffMatrix.COOPERATE, PayoffMatrix.COOPERATE))
+					.append(" | CD ").append(getOutcomes(PayoffMatrix.COOPERATE, PayoffMatrix.DEFECT))
+					.append(" | DC ").append(getOutcomes(PayoffMatrix.DEFECT, PayoffMatrix.COOPERATE))
+					.append(" | DD ").append(getOutcomes(PayoffMatrix.DEFECT, PayoffMatrix.DEFECT));
+
+			out.println(builder);
+		}
+	}
+}
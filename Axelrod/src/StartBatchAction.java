@@ -0,0 +1,83 @@
+import jade.content.AgentAction;
+import jade.util.leap.ArrayList;
+import jade.util.leap.List;
+
+/**
+ * Action passed as {@link ACLMessage} content for the receiver
+ * when {@link ControllerAgent} wants {@link PlayerAgent} to initiate a
+ * number of games against a number of opponents. Instead of a
+ * {@link StartAction} for every game, the player gets a single message and
+ * starts the games itself, one after the other. Once all games are played
+ * the player sends a single {@link FinishedAction}.
+ *
+ * The opponent names and repetitions are kept in two lists of the same
+ * size, the repetitions being the amount of games to initiate against the
+ * opponent at the same index.
+ *
+ * @author Mathijs van Bremen
+ */
+public class StartBatchAction implements AgentAction {
+	/**
+	 * Names of the opponents we need to play against.
+	 */
+	private List opponentNames;
+	/**
+	 * Amount of games to play against every opponent, as Integers.
+	 */
+	private List repetitions;
+
+	/**
+	 * Public constructor required by JADE
+	 */
+	public StartBatchAction() {
+		this.opponentNames = new ArrayList();
+		this.repetitions = new ArrayList();
+	}
+
+	/**
+	 * Will add the given opponent to the batch.
+	 *
+	 * @param opponentName name of the opponent's agent
+	 * @param repetitions amount of games to play against the opponent
+	 */
+	public void addOpponent(String opponentName, int repetitions) {
+		this.opponentNames.add(opponentName);
+		this.repetitions.add(repetitions);
+	}
+
+	/**
+	 * Sets the opponents' names
+	 *
+	 * @param opponentNames names of the opponents' agents
+	 */
+	public void setOpponentNames(List opponentNames) {
+		this.opponentNames = opponentNames;
+	}
+
+	/**
+	 * Returns the set opponents' names
+	 *
+	 * @return names of the opponents' agents
+	 */
+	public List getOpponentNames() {
+		return opponentNames;
+	}
+
+	/**
+	 * Sets the amount of games to play against every opponent
+	 *
+	 * @param repetitions amount of games for every opponent
+	 */
+	public void setRepetitions(List repetitions) {
+		this.repetitions = repetitions;
+	}
+
+	/**
+	 * Returns the amount of games to play against every opponent
+	 *
+	 * @return amount of games for every opponent
+	 */
+	public List getRepetitions() {
+		return repetitions;
+	}
+}
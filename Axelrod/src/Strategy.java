@@ -1,5 +1,6 @@
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
 
 import jade.content.AgentAction;
 import jade.content.Concept;
@@ -7,6 +8,7 @@ import jade.content.ContentElement;
 import jade.content.onto.basic.Action;
 import jade.core.AID;
 import jade.lang.acl.ACLMessage;
+import jade.util.leap.List;
 
 /**
  * Class that will handle the messages for performing the prisoner's 
@@ -40,30 +42,132 @@ public class Strategy {
 		/**
 		 * Extra strategy in case opponent's strategy is not known yet
 		 */
-		UNKNOWN
+		UNKNOWN;
+		
+		/**
+		 * Returns this StrategyType compiled into a {@link StrategyMachine}, 
+		 * which both the agents and the {@link TournamentEngine} play with. 
+		 * The machine is the strategy of the same name in the default 
+		 * {@link StrategyLibrary}, so adding a strategy only takes a 
+		 * description and an enum constant to name the agents by.
+		 * 
+		 * @return the StrategyMachine or null if this StrategyType makes no move
+		 */
+		public StrategyMachine getMachine() {
+			return StrategyLibrary.getDefault().find(name());
+		}
 	}
+	/**
+	 * Time in ms we wait for the opponent's response before giving up on a 
+	 * game we initiated, as a message may be dropped by a full message queue
+	 */
+	private static final long GAME_TIMEOUT = 5000;
+	/**
+	 * Amount of games that timed out we keep waiting for a late response of, 
+	 * older ones are forgotten so the table can't grow without limits when 
+	 * responses never arrive
+	 */
+	private static final int TIMED_OUT_CAPACITY = 256;
+	/**
+	 * Amount of games initiated by opponents we remember the {@link Match} 
+	 * of, we don't learn when they're over so older ones are forgotten
+	 */
+	private static final int OPPONENT_GAMES_CAPACITY = 256;
+	/**
+	 * Origin of a match initiated by a {@link StartAction}
+	 */
+	private static final int ORIGIN_START = 0;
+	/**
+	 * Origin of a match initiated by a {@link StartBatchAction}
+	 */
+	private static final int ORIGIN_BATCH = 1;
+	/**
+	 * Origin of a match initiated by a {@link MatchAction}
+	 */
+	private static final int ORIGIN_MATCH = 2;
+	/**
+	 * Journal event of a received {@link StartAction}
+	 */
+	private static final int EVENT_START = 0;
+	/**
+	 * Journal event of a received {@link MatchAction}
+	 */
+	private static final int EVENT_MATCH = 1;
+	/**
+	 * Journal event of a received {@link StartBatchAction}
+	 */
+	private static final int EVENT_BATCH = 2;
+	/**
+	 * Journal event of a received move
+	 */
+	private static final int EVENT_MOVE = 3;
 	/**
 	 * Our {@link StrategyType}, passed when creating this class
 	 */
 	private final StrategyType strategyType;
 	/**
-	 * {@link Map} containing the name of an opponent's agent and the 
-	 * last strategy they used on us. Used when {@link StrategyType#TIT_FOR_TAT} 
-	 * is our strategy.
+	 * The {@link StrategyMachine} of our StrategyType deciding on our moves, 
+	 * null if we make no moves
 	 */
-	private final Map<String, StrategyType> opponentStrategyMap = new HashMap<>();
+	private final StrategyMachine machine;
+	/**
+	 * Memory containing the moves our opponents made against us, used by 
+	 * the StrategyTypes that depend on what the opponent did before.
+	 */
+	private final OpponentMemory opponentMemory = new OpponentMemory();
 	/**
 	 * The {@link PlayerAgent} this Strategy belongs to
 	 */
 	private final PlayerAgent agent;
 	/**
-	 * boolean indicating whether or not the last message was a {@link StartAction}
+	 * Random class to get random values for the {@link StrategyType#RANDOM} 
+	 * StrategyType
+	 */
+	private final Random random = new Random();
+	/**
+	 * Everything we know about every opponent, indexed by the opponent's 
+	 * id in the {@link #opponentMemory}
+	 */
+	private Match[] matches = new Match[0];
+	/**
+	 * The state of every game we initiated that is still running, indexed 
+	 * by its conversation id. Every game has its own conversation, so any 
+	 * amount of games can be played at the same time, even against the 
+	 * same opponent.
+	 */
+	private final ConversationTable<Game> games = new ConversationTable<>();
+	/**
+	 * The earliest time at which one of the {@link #games} times out, 
+	 * Long.MAX_VALUE if none is running
 	 */
-	private boolean lastWasStart = false;
+	private long nextDeadline = Long.MAX_VALUE;
 	/**
-	 * The previous action we sent to the opponent
+	 * The games that timed out and whose response didn't arrive yet, so a 
+	 * late response isn't taken for a game initiated by the opponent
 	 */
-	private Concept prevSentAgentAction;
+	private final ConversationTable<Game> timedOut = new ConversationTable<>(TIMED_OUT_CAPACITY);
+	/**
+	 * The {@link Match} of every game initiated by an opponent, indexed by 
+	 * its conversation id, so the opponent is only looked up by name once 
+	 * per game
+	 */
+	private final ConversationTable<Match> opponentGames = new ConversationTable<>(OPPONENT_GAMES_CAPACITY);
+	/**
+	 * List reused to collect the running games
+	 */
+	private final ArrayList<Game> running = new ArrayList<>();
+	/**
+	 * Pre-encoded message containing the {@link FinishedAction} for the controller
+	 */
+	private ACLMessage finishedTemplate;
+	/**
+	 * Writer used to journal every message we receive
+	 */
+	private final EventJournal.Writer journal = EventJournal.getInstance().createWriter();
+	/**
+	 * Our id in the {@link EventJournal}
+	 */
+	private final int journalId;
 	
 	/**
 	 * Constructor that will simply set given parameters
@@ -74,6 +178,8 @@ public class Strategy {
 	public Strategy(PlayerAgent agent, StrategyType strategyType) {
 		this.agent = agent;
 		this.strategyType = strategyType;
+		this.machine = strategyType.getMachine();
+		this.journalId = EventJournal.getInstance().getId(agent.getName());
 	}
 	
 	/**
@@ -88,109 +194,93 @@ public class Strategy {
 			final ContentElement content = agent.getContentManager().extractContent(msg);
 			final Concept action = ((Action) content).getAction();
 			
-			// Name of the sender
-			final String senderName = msg.getSender().getName();
-			// Name of opponent we have to send message to
-			String opponentName = null;
-			
 			// Check which action this is
 			if (action instanceof StartAction) {				
 				/* We need to initiate the game */				
 				// Cast the action to the StartAction
 				final StartAction startAction = (StartAction) action;
-				// Define the opponent name
-				opponentName = startAction.getOpponentName();
+				logEvent(msg, EVENT_START, PayoffMatrix.NONE, 1);
 				
-				// Set boolean to true so we know that we sent the initial message
-				lastWasStart = true;				
-			} else if (action instanceof CooperateAction) {				
-				/* Opponent cooperated */
-				// Check if the last action was start
-				if (lastWasStart) {
-					// If we're doing tit for tat, then put strategy in map
-					if (strategyType == StrategyType.TIT_FOR_TAT) {
-						opponentStrategyMap.put(senderName, StrategyType.COOPERATE);
-					}
-					
-					//  Reset boolean back to false
-					lastWasStart = false;
-				} else {
-					// We received a message, so depending on our strategy we respond	
-					// Define the opponentName so the message will be sent
-					opponentName = senderName;
+				// A single game is a match of one iteration, every message of 
+				// the game shares the conversation id of the StartAction
+				final Match match = getMatch(opponentMemory.register(startAction.getOpponentName()), 
+						startAction.getOpponentName());
+				startGame(new Game(match, msg.getSender(), msg.getConversationId(), msg.getLanguage(), 
+						1, ORIGIN_START));
+			} else if (action instanceof MatchAction) {
+				/* We need to initiate a match */
+				final MatchAction matchAction = (MatchAction) action;
+				logEvent(msg, EVENT_MATCH, PayoffMatrix.NONE, matchAction.getIterations());
+				
+				// A match without games can't be played, so let the sender know
+				if (matchAction.getIterations() <= 0) {
+					final ACLMessage reply = msg.createReply();
+					reply.setPerformative(ACLMessage.REFUSE);
+					agent.send(reply);
+					return;
 				}
 				
-				// Update score
-				agent.updateYearsOfPrison(prevSentAgentAction, action);	
-			} else if (action instanceof DefectAction) {				
-				/* Opponent defected */	
-				// Check if the last action was start
-				if (lastWasStart) {
-					// If we're doing tit for tat, then put strategy in map
-					if (strategyType == StrategyType.TIT_FOR_TAT) {
-						opponentStrategyMap.put(senderName, StrategyType.DEFECT);
-					}
-					
-					// Reset boolean back to false
-					lastWasStart = false;
+				final Match match = getMatch(opponentMemory.register(matchAction.getOpponentName()), 
+						matchAction.getOpponentName());
+				startGame(new Game(match, msg.getSender(), msg.getConversationId(), msg.getLanguage(), 
+						matchAction.getIterations(), ORIGIN_MATCH));
+			} else if (action instanceof StartBatchAction) {
+				/* We need to initiate a batch of matches */
+				logEvent(msg, EVENT_BATCH, PayoffMatrix.NONE, 0);
+				startBatch((StartBatchAction) action, msg);
+			} else if (action instanceof CooperateAction || action instanceof DefectAction) {				
+				/* Opponent cooperated or defected */
+				final int opponentMove = action instanceof CooperateAction ? PayoffMatrix.COOPERATE : PayoffMatrix.DEFECT;
+				// Check if this is the response within a game we initiated, the 
+				// opponent can initiate a game against us at the same time so 
+				// only the conversation id tells the games apart
+				final String conversationId = msg.getConversationId();
+				final Game game = games.get(conversationId);
+				final Game lateGame = game == null ? timedOut.remove(conversationId) : null;
+				final Match match;
+				if (game != null) {
+					match = game.match;
+				} else if (lateGame != null) {
+					match = lateGame.match;
 				} else {
-					// We received a message, so depending on our strategy we respond.
-					// Define the opponentName so the message will be sent
-					opponentName = senderName;
+					match = getOpponentGame(msg);
 				}
+				// The round is the amount of moves the opponent made against us before
+				journal.record(match.journalId, journalId, EVENT_MOVE, opponentMove, 
+						opponentMemory.getMoveCount(match.opponentId));
 				
-				// Update score
-				agent.updateYearsOfPrison(prevSentAgentAction, action);	
-			}	
-			
-			// Logging
-			System.out.println(agent.getName() + " | " + action.getClass().getName() 
-					+ " | " + lastWasStart + " | " + strategyType
-					+ " | " + opponentName);
-			
-			// Check if opponentName is defined, meaning we have to send a message
-			if (opponentName != null) {
-				// Check which StrategyType we're in
-				switch (strategyType) {
-					case RANDOM: {
-						// Send random to opponent
-						sendRandom(opponentName);
-						
-						break;
-					}
+				if (game != null) {
+					// Remember the game for the next game against this opponent
+					recordGame(match, game.prevSentMove, opponentMove);
 					
-					case DEFECT: {
-						// Send defect to opponent
-						sendDefect(opponentName);
-						
-						break;
-					}
+					// Update score, both the total and the one of the match
+					agent.updateYearsOfPrison(game.prevSentMove, opponentMove, match.opponentType);
+					game.yearsOfPrison += agent.getPayoffMatrix().getYears(game.prevSentMove, opponentMove);
+					game.opponentYearsOfPrison += agent.getPayoffMatrix().getYears(opponentMove, game.prevSentMove);
 					
-					case COOPERATE: {
-						// Send cooperate to opponent
-						sendCooperate(opponentName);
-						
-						break;
+					// Play the next iteration of the match if there is one left
+					if (++game.iteration < game.iterations) {
+						game.prevSentMove = getMove(match);
+						sendMove(match, game.conversationId, game.language, game.prevSentMove);
+						setDeadline(game);
+					} else {
+						finishGame(game);
 					}
+				} else if (lateGame != null) {
+					// Late response in a game we already gave up on, so there's 
+					// nothing to respond to
+				} else {
+					// We received a message, so depending on our strategy we respond 
+					// in the conversation of the opponent's game
+					final int move = getMove(match);
+					sendMove(match, msg.getConversationId(), msg.getLanguage(), move);
 					
-					case TIT_FOR_TAT: {
-						// Send via tit for tat strategy to opponent
-						sendTitForTat(opponentName);
-						
-						// Now that we've sent the message, we need to update the 
-						// last strategy in the map
-						if (action instanceof CooperateAction) {
-							opponentStrategyMap.put(senderName, StrategyType.COOPERATE);														
-						} else if (action instanceof DefectAction) {
-							opponentStrategyMap.put(senderName, StrategyType.DEFECT);							
-						}
-						
-						break;
+					// Now that we've sent the message, we need to remember the 
+					// move the opponent made for the next game and update the score
+					if (move != PayoffMatrix.NONE) {
+						recordGame(match, move, opponentMove);
+						agent.updateYearsOfPrison(move, opponentMove, match.opponentType);
 					}
-				
-					default: 
-						// Do nothing
-						break;
 				}
 			}
 		} catch (Exception e) {
@@ -199,96 +289,322 @@ public class Strategy {
 	}
 	
 	/**
-	 * Will send a random strategy to the given opponent
+	 * Will write an event for the given message of the controller to 
+	 * the {@link EventJournal}.
 	 * 
-	 * @param opponentName name of the opponent's agent
+	 * @param msg the message we received
+	 * @param event the type of event
+	 * @param move the move of the event
+	 * @param round the round of the event
 	 */
-	private void sendRandom(String opponentName) {
-		// Use the Math class to randomly send defect or cooperate
-		if (Math.random() >= 0.5) {
-			sendDefect(opponentName);
-		} else {
-			sendCooperate(opponentName);			
-		}		
+	private void logEvent(ACLMessage msg, int event, int move, int round) {
+		journal.record(EventJournal.getInstance().getId(msg.getSender().getName()), journalId, event, move, round);
 	}
 	
 	/**
-	 * Will send a defect strategy to the given opponent
+	 * Will close the journal of this Strategy, called when the agent is 
+	 * taken down. No messages may be handled afterwards.
+	 */
+	public void close() {
+		journal.close();
+	}
+	
+	/**
+	 * Returns the amount of games we initiated that are still running.
 	 * 
-	 * @param opponentName name of the opponent's agent
+	 * @return the amount of running games
 	 */
-	private void sendDefect(String opponentName) {
-		// Send a new message with the DefectAction
-		sendNewACL(opponentName, new DefectAction());		
+	public int getActiveGames() {
+		return games.size();
 	}
 	
 	/**
-	 * Will send a cooperate strategy to the given opponent
+	 * Will initiate the given game by sending our first move. The game is 
+	 * kept in the {@link #games} until its last iteration is played.
 	 * 
-	 * @param opponentName name of the opponent's agent
+	 * @param game the state of the game
 	 */
-	private void sendCooperate(String opponentName) {
-		// Send a new message with the CooperateAction
-		sendNewACL(opponentName, new CooperateAction());		
+	private void startGame(Game game) {
+		games.put(game.conversationId, game);
+		
+		// Let our StrategyType decide on the first move and send it
+		game.prevSentMove = getMove(game.match);
+		sendMove(game.match, game.conversationId, game.language, game.prevSentMove);
+		setDeadline(game);
 	}
 	
 	/**
-	 * Will send a defect or cooperate depending on the tit for tat 
-	 * strategy
+	 * Will give the opponent {@link #GAME_TIMEOUT} ms to respond to the move 
+	 * we just sent in the given game.
 	 * 
-	 * @param opponentName name of the opponent's agent
-	 * @see StrategyType#TIT_FOR_TAT
-	 */
-	private void sendTitForTat(String opponentName) {		
-		// Get the StrategyType from the map and check if not found
-		StrategyType strategyType = opponentStrategyMap.get(opponentName);
-		if (strategyType == null) {
-			// Not found, so put the UNKNOWN one in
-			strategyType = StrategyType.UNKNOWN;
-			opponentStrategyMap.put(opponentName, strategyType);
+	 * @param game the state of the game
+	 */
+	private void setDeadline(Game game) {
+		game.deadline = System.currentTimeMillis() + GAME_TIMEOUT;
+		nextDeadline = Math.min(nextDeadline, game.deadline);
+	}
+	
+	/**
+	 * Returns the earliest time at which one of the games we initiated 
+	 * times out, the agent should call {@link #expireGames(long)} then.
+	 * 
+	 * @return the time in ms or Long.MAX_VALUE if no game is running
+	 */
+	public long getNextDeadline() {
+		return nextDeadline;
+	}
+	
+	/**
+	 * Will finish the games we initiated of which the opponent didn't respond 
+	 * in time, so the batch or controller waiting for them can move on. 
+	 * Only the iterations played so far count.
+	 * 
+	 * @param now the current time in ms
+	 */
+	public void expireGames(long now) {
+		running.clear();
+		games.addValuesTo(running);
+		nextDeadline = Long.MAX_VALUE;
+		for (Game game : running) {
+			if (game.deadline <= now) {
+				timedOut.put(game.conversationId, game);
+				finishGame(game);
+			} else {
+				nextDeadline = Math.min(nextDeadline, game.deadline);
+			}
 		}
+		running.clear();
+	}
+	
+	/**
+	 * Will end the game we initiated after its last iteration and let 
+	 * whoever made us initiate it know about it.
+	 * 
+	 * @param game the state of the game that is finished
+	 */
+	private void finishGame(Game game) {
+		games.remove(game.conversationId);
 		
-		switch (strategyType) {
-			case COOPERATE: {
-				// Opponent cooperated last time, so send the CooperateAction
-				sendCooperate(opponentName);
-				
+		switch (game.origin) {
+			case ORIGIN_BATCH:
+				// Report the match within the batch and move on to the next one
+				sendMatchResult(game, game.batch.conversationId);
+				nextBatchMatch(game.batch);
 				break;
-			}
-			
-			case DEFECT: {
-				// Opponent defected last time, so send the DefectAction
-				sendDefect(opponentName);
 				
+			case ORIGIN_MATCH:
+				sendMatchResult(game, game.conversationId);
 				break;
-			}
-		
-			case RANDOM: 		// Should not happen, fall-through
-			case TIT_FOR_TAT: 	// -
-			case UNKNOWN:		// fall-through
-			default: {
-				// Simply send the CooperateAction as the first action
-				sendCooperate(opponentName);
 				
+			default:
+				sendFinished(game.controller, game.conversationId, game.language);
 				break;
+		}
+	}
+	
+	/**
+	 * Will set up the matches of the given {@link StartBatchAction} and start 
+	 * the first one. Every opponent gets a single match in which the 
+	 * repetitions are played as iterations, the matches are played one 
+	 * after the other. Every match is reported with a {@link MatchResult} 
+	 * in the conversation of the batch.
+	 * 
+	 * @param batchAction the {@link StartBatchAction} we received
+	 * @param msg the message containing the StartBatchAction
+	 */
+	private void startBatch(StartBatchAction batchAction, ACLMessage msg) {
+		final List names = batchAction.getOpponentNames();
+		final List repetitions = batchAction.getRepetitions();
+		
+		// Look up the id of every opponent, skipping the ones without games
+		final Batch batch = new Batch(msg.getSender(), msg.getConversationId(), msg.getLanguage(), names.size());
+		int size = 0;
+		for (int i = 0; i < names.size(); i++) {
+			// Integers may be decoded as Longs depending on the language
+			final int iterations = ((Number) repetitions.get(i)).intValue();
+			if (iterations > 0) {
+				final String opponentName = (String) names.get(i);
+				batch.opponents[size] = opponentMemory.register(opponentName);
+				batch.iterations[size] = iterations;
+				getMatch(batch.opponents[size], opponentName);
+				size++;
 			}
 		}
+		batch.size = size;
+		
+		nextBatchMatch(batch);
 	}
 	
 	/**
-	 * Will send an {@link ACLMessage} to the given opponent's name. 
-	 * The message will contain the given AgentAction as content.
+	 * Will initiate the next match of the given batch or tell the controller 
+	 * the batch is finished if all matches have been played. Every match of 
+	 * the batch gets its own conversation id, derived from the conversation 
+	 * id of the batch.
 	 * 
-	 * @param opponentName name of the opponent's agent
-	 * @param action either {@link CooperateAction} or {@link DefectAction}
+	 * @param batch the batch to continue
+	 */
+	private void nextBatchMatch(Batch batch) {
+		// Check if all matches have been played
+		if (batch.position >= batch.size) {
+			sendFinished(batch.controller, batch.conversationId, batch.language);
+			return;
+		}
+		
+		// Initiate the match against the next opponent
+		final int position = batch.position++;
+		final Game game = new Game(matches[batch.opponents[position]], batch.controller, 
+				batch.conversationId + "-" + batch.position, batch.language, 
+				batch.iterations[position], ORIGIN_BATCH);
+		game.batch = batch;
+		startGame(game);
+	}
+	
+	/**
+	 * Will send the {@link MatchResult} of the given match to the agent that 
+	 * sent us the {@link MatchAction} or {@link StartBatchAction}.
+	 * 
+	 * @param game the state of the match that is finished
+	 * @param conversationId the conversation id of the MatchAction or 
+	 * StartBatchAction
 	 */
-	private void sendNewACL(String opponentName, AgentAction action) {
+	private void sendMatchResult(Game game, String conversationId) {
+		final MatchResult result = new MatchResult();
+		result.setOpponentName(game.match.opponent.getName());
+		result.setIterations(game.iteration);
+		result.setYearsOfPrison(game.yearsOfPrison);
+		result.setOpponentYearsOfPrison(game.opponentYearsOfPrison);
+		
+		// The result is different every time, so it can't be pre-encoded
+		final ACLMessage msg = createTemplate(ACLMessage.INFORM, game.controller, result, game.language);
+		msg.setConversationId(conversationId);
+		
+		// Send the message
+		agent.send(msg);
+	}
+	
+	/**
+	 * Will send the given move to the opponent of the given match
+	 * 
+	 * @param match the state of the games against the opponent
+	 * @param conversationId the conversation id of the game
+	 * @param language the language the game is played in
+	 * @param move {@link PayoffMatrix#COOPERATE} or {@link PayoffMatrix#DEFECT}, 
+	 * nothing will be sent for {@link PayoffMatrix#NONE}
+	 */
+	private void sendMove(Match match, String conversationId, String language, int move) {
+		if (move == PayoffMatrix.NONE) {
+			return;
+		}
+		
+		// Copy the pre-encoded message for this move and stamp it with the 
+		// conversation id of the game
+		final ACLMessage msg = (ACLMessage) getTemplate(match, language, move).clone();
+		msg.setConversationId(conversationId);
+		
+		// Send the message
+		agent.send(msg);
+	}
+	
+	/**
+	 * Returns the move our StrategyType makes against the opponent of the 
+	 * given match, the move of the current state of our {@link StrategyMachine} 
+	 * against them.
+	 * 
+	 * @param match the state of the games against the opponent
+	 * @return {@link PayoffMatrix#COOPERATE}, {@link PayoffMatrix#DEFECT} or 
+	 * {@link PayoffMatrix#NONE}
+	 */
+	private int getMove(Match match) {
+		if (machine == null) {
+			return PayoffMatrix.NONE;
+		}
+		
+		return machine.getMove(match.state, random);
+	}
+	
+	/**
+	 * Will remember a game played against the opponent of the given match 
+	 * and move our {@link StrategyMachine} on to its next state.
+	 * 
+	 * @param match the state of the games against the opponent
+	 * @param move the move we made
+	 * @param opponentMove the move the opponent made
+	 */
+	private void recordGame(Match match, int move, int opponentMove) {
+		opponentMemory.record(match.opponentId);
+		if (machine != null) {
+			match.state = machine.getNextState(match.state, move, opponentMove);
+		}
+	}
+	
+	/**
+	 * Will tell the given controller that the game or batch we initiated 
+	 * is finished, so it can start the next one.
+	 * 
+	 * @param controller the {@link AID} of the agent that sent us the 
+	 * {@link StartAction} or {@link StartBatchAction}
+	 * @param conversationId the conversation id of the game or batch
+	 * @param language the language to send the message in
+	 */
+	private void sendFinished(AID controller, String conversationId, String language) {
+		// The content is the same every time, so only encode it again when 
+		// the controller or language changed
+		if (finishedTemplate == null || !language.equals(finishedTemplate.getLanguage()) 
+				|| !controller.equals(finishedTemplate.getAllReceiver().next())) {
+			finishedTemplate = createTemplate(ACLMessage.INFORM, controller, new FinishedAction(), language);
+		}
+		
+		// Copy the pre-encoded message and stamp it with the conversation id of the game
+		final ACLMessage msg = (ACLMessage) finishedTemplate.clone();
+		msg.setConversationId(conversationId);
+		
+		// Send the message
+		agent.send(msg);
+	}
+	
+	/**
+	 * Returns the pre-encoded message containing the given move for the 
+	 * opponent of the given match, creating it if not created yet. As the 
+	 * content of a move is the same every time, it is only encoded once for 
+	 * every opponent and language.
+	 * 
+	 * @param match the state of the games against the opponent
+	 * @param language the language the game is played in
+	 * @param move {@link PayoffMatrix#COOPERATE} or {@link PayoffMatrix#DEFECT}
+	 * @return the message containing the move
+	 */
+	private ACLMessage getTemplate(Match match, String language, int move) {
+		// Drop the templates when the game is played in another language
+		if (!language.equals(match.templateLanguage)) {
+			Arrays.fill(match.templates, null);
+			match.templateLanguage = language;
+		}
+		
+		if (match.templates[move] == null) {
+			final AgentAction action = move == PayoffMatrix.DEFECT ? new DefectAction() : new CooperateAction();
+			match.templates[move] = createTemplate(ACLMessage.REQUEST, match.opponent, action, language);
+		}
+		
+		return match.templates[move];
+	}
+	
+	/**
+	 * Will create an {@link ACLMessage} for the given receiver. The message 
+	 * will contain the given AgentAction as content, but no conversation id, 
+	 * so it can be copied and sent for every game.
+	 * 
+	 * @param performative the performative of the message
+	 * @param receiver the {@link AID} of the receiver
+	 * @param action the AgentAction to send
+	 * @param language the language to encode the AgentAction in
+	 * @return the message
+	 */
+	private ACLMessage createTemplate(int performative, AID receiver, AgentAction action, String language) {
 		// Create a new ACLMessage and set the ontology and language
-		final ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
+		final ACLMessage msg = new ACLMessage(performative);
 		msg.setOntology(agent.getOntology().getName());
-		msg.setLanguage(agent.getCodec().getName());
-		// Create a new AID, add the given AgentAction and add it to the message
-		final AID receiver = new AID(opponentName, AID.ISGUID);
+		msg.setLanguage(language);
+		// Add the given AgentAction for the receiver's AID and add it to the message
 		try {
 			agent.getContentManager().fillContent(msg, new Action(receiver, action));
 		} catch (Exception e) {
@@ -296,10 +612,227 @@ public class Strategy {
 		}
 		msg.addReceiver(receiver);
 		
-		// Send the message
-		agent.send(msg);
+		return msg;
+	}
+	
+	/**
+	 * Returns the state of the games against the given opponent, 
+	 * creating it if we never played against them before.
+	 * 
+	 * @param opponentId id of the opponent in the {@link #opponentMemory}
+	 * @param opponentName name of the opponent's agent
+	 * @return the {@link Match} against the opponent
+	 */
+	private Match getMatch(int opponentId, String opponentName) {
+		// Make room for new opponents
+		if (opponentId >= matches.length) {
+			matches = Arrays.copyOf(matches, Math.max(opponentMemory.size(), matches.length * 2));
+		}
+		
+		Match match = matches[opponentId];
+		if (match == null) {
+			match = new Match(opponentId, new AID(opponentName, AID.ISGUID));
+			match.state = machine == null ? 0 : machine.getInitialState();
+			matches[opponentId] = match;
+		}
+		
+		return match;
+	}
+	
+	/**
+	 * Returns the {@link Match} of the game initiated by the sender of the 
+	 * given message. The sender is only looked up by name for the first 
+	 * message of the game, after that by the conversation id.
+	 * 
+	 * @param msg the message containing the move of the opponent
+	 * @return the Match
+	 */
+	private Match getOpponentGame(ACLMessage msg) {
+		Match match = opponentGames.get(msg.getConversationId());
+		if (match == null) {
+			final String senderName = msg.getSender().getName();
+			match = getMatch(opponentMemory.register(senderName), senderName);
+			opponentGames.put(msg.getConversationId(), match);
+		}
 		
-		// Store the action as the prevSentAction
-		prevSentAgentAction = action;
+		return match;
+	}
+	
+	/**
+	 * State of the games played against a single opponent, shared by all 
+	 * games against them.
+	 */
+	private static class Match {
+		/**
+		 * The id of the opponent in the {@link Strategy#opponentMemory}
+		 */
+		private final int opponentId;
+		/**
+		 * The {@link AID} of the opponent
+		 */
+		private final AID opponent;
+		/**
+		 * The StrategyType of the opponent as known by the {@link Scoreboard}
+		 */
+		private final StrategyType opponentType;
+		/**
+		 * The id of the opponent in the {@link EventJournal}
+		 */
+		private final int journalId;
+		/**
+		 * The state of our {@link StrategyMachine} against the opponent, 
+		 * shared by the games in both directions like the opponent's moves 
+		 * in the {@link Strategy#opponentMemory}
+		 */
+		private int state;
+		/**
+		 * Pre-encoded messages for every move, indexed by the move
+		 */
+		private final ACLMessage[] templates = new ACLMessage[2];
+		/**
+		 * The language the {@link #templates} are encoded in
+		 */
+		private String templateLanguage;
+		
+		/**
+		 * Constructor that will simply set given parameters
+		 * 
+		 * @param opponentId the id of the opponent
+		 * @param opponent the {@link AID} of the opponent
+		 */
+		private Match(int opponentId, AID opponent) {
+			this.opponentId = opponentId;
+			this.opponent = opponent;
+			this.opponentType = Scoreboard.getInstance().getStrategyType(opponent.getName());
+			this.journalId = EventJournal.getInstance().getId(opponent.getName());
+		}
+
+	}
+	
+	/**
+	 * State of a single game or match we initiated, kept in the 
+	 * {@link Strategy#games} under its conversation id.
+	 */
+	private static class Game {
+		/**
+		 * The state of the games against the opponent
+		 */
+		private final Match match;
+		/**
+		 * The {@link AID} of the agent that made us initiate the game, which 
+		 * will be told when the game is finished
+		 */
+		private final AID controller;
+		/**
+		 * The conversation id shared by every message of the game
+		 */
+		private final String conversationId;
+		/**
+		 * The language the game is played in
+		 */
+		private final String language;
+		/**
+		 * The amount of iterations of the game
+		 */
+		private final int iterations;
+		/**
+		 * The action that made us initiate the game, one of the ORIGIN constants
+		 */
+		private final int origin;
+		/**
+		 * The batch this game is part of, null if it isn't part of one
+		 */
+		private Batch batch;
+		/**
+		 * The amount of iterations played so far
+		 */
+		private int iteration = 0;
+		/**
+		 * The previous move we sent to the opponent
+		 */
+		private int prevSentMove = PayoffMatrix.NONE;
+		/**
+		 * The years of prison we got in the game
+		 */
+		private int yearsOfPrison = 0;
+		/**
+		 * The years of prison the opponent got in the game
+		 */
+		private int opponentYearsOfPrison = 0;
+		/**
+		 * Time in ms at which we give up waiting for the opponent's response
+		 */
+		private long deadline = Long.MAX_VALUE;
+		
+		/**
+		 * Constructor that will simply set given parameters
+		 * 
+		 * @param match the state of the games against the opponent
+		 * @param controller the agent that made us initiate the game
+		 * @param conversationId the conversation id of the game
+		 * @param language the language to play the game in
+		 * @param iterations the amount of iterations of the game
+		 * @param origin the action that made us initiate the game
+		 */
+		private Game(Match match, AID controller, String conversationId, String language, 
+				int iterations, int origin) {
+			this.match = match;
+			this.controller = controller;
+			this.conversationId = conversationId;
+			this.language = language;
+			this.iterations = iterations;
+			this.origin = origin;
+		}
+	}
+	
+	/**
+	 * State of a {@link StartBatchAction}, whose matches are played one 
+	 * after the other.
+	 */
+	private static class Batch {
+		/**
+		 * The {@link AID} of the agent that sent us the StartBatchAction
+		 */
+		private final AID controller;
+		/**
+		 * The conversation id of the StartBatchAction
+		 */
+		private final String conversationId;
+		/**
+		 * The language the StartBatchAction was sent in
+		 */
+		private final String language;
+		/**
+		 * The opponent ids of the matches in the order they will be played
+		 */
+		private final int[] opponents;
+		/**
+		 * The amount of iterations of every match
+		 */
+		private final int[] iterations;
+		/**
+		 * The amount of matches, opponents without games are left out
+		 */
+		private int size;
+		/**
+		 * Index of the next match to play
+		 */
+		private int position = 0;
+		
+		/**
+		 * Constructor that will simply set given parameters
+		 * 
+		 * @param controller the agent that sent us the StartBatchAction
+		 * @param conversationId the conversation id of the StartBatchAction
+		 * @param language the language the StartBatchAction was sent in
+		 * @param capacity the most matches the batch can have
+		 */
+		private Batch(AID controller, String conversationId, String language, int capacity) {
+			this.controller = controller;
+			this.conversationId = conversationId;
+			this.language = language;
+			this.opponents = new int[capacity];
+			this.iterations = new int[capacity];
+		}
 	}
 }
@@ -0,0 +1,165 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Named {@link StrategyMachine}s, read from descriptions of the form:
+ * <pre>
+ * # Comment
+ * TIT_FOR_TAT = C 0 1; D 0 1
+ * </pre>
+ * The {@link #getDefault() default} library contains the StrategyTypes of
+ * the agents by the same names, together with a couple of well known
+ * strategies. More strategies can be read from a file, adding a strategy
+ * to the tournament doesn't need any code.
+ *
+ * @author Mathijs van Bremen
+ * @see StrategyMachine
+ */
+public class StrategyLibrary {
+	/**
+	 * Descriptions of the strategies in the default library
+	 */
+	private static final String DEFAULT_DESCRIPTIONS =
+			"COOPERATE = C 0 0\n"
+			+ "DEFECT = D 0 0\n"
+			+ "RANDOM = memory 0 0.5\n"
+			+ "TIT_FOR_TAT = C 0 1; D 0 1\n"
+			// Cooperates until the opponent defects once, then always defects
+			+ "GRIM_TRIGGER = C 0 1; D 1 1\n"
+			// Win-stay lose-shift: cooperates after CC and DD
+			+ "PAVLOV = memory 1 1 0 0 1\n"
+			// Tit for Tat that forgives a defection a third of the time
+			+ "GENEROUS_TIT_FOR_TAT = C 0 1; 0.333 0 1\n"
+			// Only defects after two defections in a row
+			+ "TIT_FOR_TWO_TATS = C 0 1; C 0 2; D 0 2\n";
+	/**
+	 * The default library, created after {@link #DEFAULT_DESCRIPTIONS} is set
+	 */
+	private static final StrategyLibrary DEFAULT = createDefault();
+
+	/**
+	 * {@link Map} containing the name of a strategy and its machine, in the
+	 * order they were read
+	 */
+	private final Map<String, StrategyMachine> machines = new LinkedHashMap<>();
+
+	/**
+	 * Returns the default library. It must not be changed, use
+	 * {@link #copy()} to add strategies to it.
+	 *
+	 * @return the StrategyLibrary
+	 */
+	public static StrategyLibrary getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Returns a new library containing the same strategies as this one.
+	 *
+	 * @return the copy
+	 */
+	public StrategyLibrary copy() {
+		final StrategyLibrary library = new StrategyLibrary();
+		library.machines.putAll(machines);
+
+		return library;
+	}
+
+	/**
+	 * Will read the strategies from the given file, replacing strategies
+	 * with the same name.
+	 *
+	 * @param path path of the file
+	 * @throws IOException if the file can't be read
+	 */
+	public void load(String path) throws IOException {
+		try (Reader reader = new FileReader(path)) {
+			read(reader);
+		}
+	}
+
+	/**
+	 * Will read the strategies from the given reader, replacing strategies
+	 * with the same name.
+	 *
+	 * @param reader the reader to read from
+	 * @throws IOException if the reader can't be read
+	 * @throws IllegalArgumentException if a description is invalid
+	 */
+	public void read(Reader reader) throws IOException {
+		final BufferedReader lines = new BufferedReader(reader);
+		String line;
+		while ((line = lines.readLine()) != null) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+
+			final int split = line.indexOf('=');
+			if (split < 0) {
+				throw new IllegalArgumentException("Expected name = description, got " + line);
+			}
+			final String name = line.substring(0, split).trim();
+			machines.put(name, StrategyMachine.compile(name, line.substring(split + 1)));
+		}
+	}
+
+	/**
+	 * Returns the strategy with the given name.
+	 *
+	 * @param name name of the strategy
+	 * @return the StrategyMachine
+	 * @throws IllegalArgumentException if there is no such strategy
+	 */
+	public StrategyMachine get(String name) {
+		final StrategyMachine machine = machines.get(name);
+		if (machine == null) {
+			throw new IllegalArgumentException("Unknown strategy " + name + ", expected one of " + machines.keySet());
+		}
+
+		return machine;
+	}
+
+	/**
+	 * Returns the strategy with the given name if there is one.
+	 *
+	 * @param name name of the strategy
+	 * @return the StrategyMachine or null
+	 */
+	public StrategyMachine find(String name) {
+		return machines.get(name);
+	}
+
+	/**
+	 * Returns all strategies, in the order they were read.
+	 *
+	 * @return the StrategyMachines
+	 */
+	public List<StrategyMachine> getAll() {
+		return new ArrayList<>(machines.values());
+	}
+
+	/**
+	 * Returns the default library.
+	 *
+	 * @return the StrategyLibrary
+	 */
+	private static StrategyLibrary createDefault() {
+		final StrategyLibrary library = new StrategyLibrary();
+		try {
+			library.read(new StringReader(DEFAULT_DESCRIPTIONS));
+		} catch (IOException e) {
+			// Can't happen when reading from a String
+			throw new IllegalStateException(e);
+		}
+
+		return library;
+	}
+}
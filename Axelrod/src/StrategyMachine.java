@@ -0,0 +1,272 @@
+import java.util.Random;
+
+/**
+ * A strategy compiled into a finite-state machine. Every state has a move,
+ * either a fixed one or cooperating with a certain chance, and after every
+ * game the next state is looked up in a table indexed by the current state,
+ * our move and the opponent's move. Deciding on a move is a single array
+ * lookup, so the {@link TournamentEngine} can play any amount of strategies
+ * without a branch for every one of them.
+ *
+ * Strategies are described by one of two formats:
+ * <pre>
+ * C 0 1; D 0 1
+ * memory 1 1 0 0 1
+ * </pre>
+ * The first is a list of states separated by semicolons, state 0 being the
+ * first. Every state is its move followed by the state after the opponent
+ * cooperated and the state after the opponent defected. The move is C, D
+ * or the chance of cooperating, like 0.9. The example is Tit for Tat.
+ *
+ * The second is a memory-n table: the chance of cooperating for every
+ * combination of the last n games, n followed by 4^n chances. A game is
+ * numbered by (our move << 1) | opponent's move, so CC, CD, DC, DD for
+ * memory-one, and the last game is the lowest digit in base 4. Before the
+ * first game all earlier games count as mutual cooperation. The example
+ * is Pavlov, win-stay lose-shift.
+ *
+ * @author Mathijs van Bremen
+ * @see StrategyLibrary, TournamentEngine
+ */
+public final class StrategyMachine {
+	/**
+	 * Move of a state in which the move is decided by chance
+	 */
+	private static final int CHANCE = -1;
+	/**
+	 * Keyword of the memory-n format
+	 */
+	private static final String MEMORY = "memory";
+	/**
+	 * Largest n of the memory-n format, the table grows with 4^n
+	 */
+	private static final int MAX_MEMORY = 6;
+
+	/**
+	 * Name of the strategy
+	 */
+	private final String name;
+	/**
+	 * Move of every state, {@link PayoffMatrix#COOPERATE}, {@link PayoffMatrix#DEFECT}
+	 * or {@link #CHANCE}
+	 */
+	private final int[] moves;
+	/**
+	 * Chance of cooperating in every state, only used for {@link #CHANCE} states
+	 */
+	private final double[] cooperation;
+	/**
+	 * Next state, indexed by (state << 2) | (our move << 1) | opponent's move
+	 */
+	private final int[] transitions;
+	/**
+	 * Whether no state is decided by chance
+	 */
+	private final boolean deterministic;
+
+	/**
+	 * Constructor that will set up the machine from the compiled tables
+	 *
+	 * @param name name of the strategy
+	 * @param cooperation chance of cooperating in every state
+	 * @param transitions next state of every state and game
+	 */
+	private StrategyMachine(String name, double[] cooperation, int[] transitions) {
+		this.name = name;
+		this.cooperation = cooperation;
+		this.transitions = transitions;
+		this.moves = new int[cooperation.length];
+		boolean fixed = true;
+		for (int state = 0; state < cooperation.length; state++) {
+			if (cooperation[state] >= 1) {
+				moves[state] = PayoffMatrix.COOPERATE;
+			} else if (cooperation[state] <= 0) {
+				moves[state] = PayoffMatrix.DEFECT;
+			} else {
+				moves[state] = CHANCE;
+				fixed = false;
+			}
+		}
+		this.deterministic = fixed;
+	}
+
+	/**
+	 * Will compile the given description into a StrategyMachine.
+	 *
+	 * @param name name of the strategy
+	 * @param description the description, see {@link StrategyMachine}
+	 * @return the StrategyMachine
+	 * @throws IllegalArgumentException if the description is invalid
+	 */
+	public static StrategyMachine compile(String name, String description) {
+		final String trimmed = description.trim();
+		try {
+			if (trimmed.startsWith(MEMORY)) {
+				return compileMemory(name, trimmed.substring(MEMORY.length()).trim().split("\\s+"));
+			}
+			return compileStates(name, trimmed.split(";"));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(name + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Will compile a list of states.
+	 *
+	 * @param name name of the strategy
+	 * @param states the description of every state
+	 * @return the StrategyMachine
+	 */
+	private static StrategyMachine compileStates(String name, String[] states) {
+		final double[] cooperation = new double[states.length];
+		final int[] transitions = new int[states.length << 2];
+		for (int state = 0; state < states.length; state++) {
+			final String[] parts = states[state].trim().split("\\s+");
+			if (parts.length != 3) {
+				throw new IllegalArgumentException(name + ": expected move and two states, got " + states[state]);
+			}
+			cooperation[state] = parseChance(parts[0]);
+			final int afterCooperate = parseState(name, parts[1], states.length);
+			final int afterDefect = parseState(name, parts[2], states.length);
+			// Our own move doesn't matter, the state already knows it
+			for (int move = 0; move < 2; move++) {
+				transitions[(state << 2) | (move << 1) | PayoffMatrix.COOPERATE] = afterCooperate;
+				transitions[(state << 2) | (move << 1) | PayoffMatrix.DEFECT] = afterDefect;
+			}
+		}
+
+		return new StrategyMachine(name, cooperation, transitions);
+	}
+
+	/**
+	 * Will compile a memory-n table.
+	 *
+	 * @param name name of the strategy
+	 * @param parts n followed by the chances of cooperating
+	 * @return the StrategyMachine
+	 */
+	private static StrategyMachine compileMemory(String name, String[] parts) {
+		final int memory = Integer.parseInt(parts[0]);
+		if (memory < 0 || memory > MAX_MEMORY) {
+			throw new IllegalArgumentException(name + ": memory must be 0-" + MAX_MEMORY + ", got " + memory);
+		}
+		// Every state is a history of games, 4 games per step back
+		final int states = 1 << (memory << 1);
+		if (parts.length != states + 1) {
+			throw new IllegalArgumentException(name + ": expected " + states + " chances for memory " + memory);
+		}
+
+		final double[] cooperation = new double[states];
+		final int[] transitions = new int[states << 2];
+		for (int state = 0; state < states; state++) {
+			cooperation[state] = parseChance(parts[state + 1]);
+			for (int game = 0; game < 4; game++) {
+				// Shift the new game in, the oldest one falls out
+				transitions[(state << 2) | game] = ((state << 2) | game) & (states - 1);
+			}
+		}
+
+		return new StrategyMachine(name, cooperation, transitions);
+	}
+
+	/**
+	 * Returns the chance of cooperating written as C, D or a number.
+	 *
+	 * @param value the chance
+	 * @return the chance as number
+	 */
+	private static double parseChance(String value) {
+		if (value.equalsIgnoreCase("C")) {
+			return 1;
+		}
+		if (value.equalsIgnoreCase("D")) {
+			return 0;
+		}
+
+		return Double.parseDouble(value);
+	}
+
+	/**
+	 * Returns the given state as number.
+	 *
+	 * @param name name of the strategy
+	 * @param value the state
+	 * @param states amount of states
+	 * @return the state
+	 */
+	private static int parseState(String name, String value, int states) {
+		final int state = Integer.parseInt(value);
+		if (state < 0 || state >= states) {
+			throw new IllegalArgumentException(name + ": unknown state " + state);
+		}
+
+		return state;
+	}
+
+	/**
+	 * Returns the name of the strategy.
+	 *
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the state before the first game.
+	 *
+	 * @return the state
+	 */
+	public int getInitialState() {
+		return 0;
+	}
+
+	/**
+	 * Returns whether this strategy never decides on a move by chance, so a
+	 * match between two deterministic strategies always has the same outcome.
+	 *
+	 * @return true if no state is decided by chance
+	 * @see PayoffCache
+	 */
+	public boolean isDeterministic() {
+		return deterministic;
+	}
+
+	/**
+	 * Returns the move in the given state.
+	 *
+	 * @param state the current state
+	 * @param random Random class used when the move is decided by chance
+	 * @return {@link PayoffMatrix#COOPERATE} or {@link PayoffMatrix#DEFECT}
+	 */
+	public int getMove(int state, Random random) {
+		final int move = moves[state];
+		if (move != CHANCE) {
+			return move;
+		}
+
+		return random.nextDouble() < cooperation[state] ? PayoffMatrix.COOPERATE : PayoffMatrix.DEFECT;
+	}
+
+	/**
+	 * Returns the state after a game.
+	 *
+	 * @param state the state during the game
+	 * @param move the move we made
+	 * @param opponentMove the move the opponent made
+	 * @return the next state
+	 */
+	public int getNextState(int state, int move, int opponentMove) {
+		return transitions[(state << 2) | (move << 1) | opponentMove];
+	}
+
+	/**
+	 * Returns the name of the strategy.
+	 *
+	 * @return the name
+	 */
+	@Override
+	public String toString() {
+		return name;
+	}
+}
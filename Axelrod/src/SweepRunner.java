@@ -0,0 +1,334 @@
+import java.io.FileWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Plays a grid of tournaments with the {@link TournamentEngine}: every
+ * combination of payoff matrix, roster and amount of rounds is played a
+ * number of times, each with its own seed. All tournaments are independent,
+ * so they are played on a ForkJoinPool using all cores. As soon as all runs
+ * of a configuration are done its results are written as CSV, a row for
+ * every strategy in the roster with the mean years of prison per player
+ * and the 95% confidence interval of that mean.
+ *
+ * Run it with (all arguments are optional, lists are separated by commas):
+ * <pre>
+ * java SweepRunner matrices=1/3/5/0,2/4/6/0 rosters=RANDOM+DEFECT+COOPERATE+TIT_FOR_TAT
+ *     rounds=25,100 runs=5 seed=1 out=sweep.csv strategies=strategies.txt
+ * </pre>
+ * A payoff matrix is written as cc/dd/cd/dc years, a roster as the
+ * strategies of its players separated by a plus. The strategies are the
+ * ones of the default {@link StrategyLibrary} and the optional strategies
+ * file. Use out=- to write to the console.
+ *
+ * @author Mathijs van Bremen
+ * @see TournamentEngine, PayoffMatrix
+ */
+public class SweepRunner {
+	/**
+	 * Header of the CSV file
+	 */
+	private static final String HEADER = "matrix,roster,rounds,strategy,players,runs,mean,stddev,ci_low,ci_high";
+	/**
+	 * Two-sided 95% quantiles of the Student t-distribution, indexed by
+	 * degrees of freedom - 1
+	 */
+	private static final double[] T_VALUES = {
+			12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+			2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+			2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042
+	};
+	/**
+	 * Two-sided 95% quantile of the normal distribution, used for more
+	 * degrees of freedom than in {@link #T_VALUES}
+	 */
+	private static final double Z_VALUE = 1.960;
+
+	/**
+	 * The payoff matrices to play with
+	 */
+	private final List<PayoffMatrix> payoffMatrices;
+	/**
+	 * The rosters to play with
+	 */
+	private final List<StrategyMachine[]> rosters;
+	/**
+	 * The amounts of rounds to play
+	 */
+	private final List<Integer> rounds;
+	/**
+	 * Amount of times every configuration is played
+	 */
+	private final int runs;
+	/**
+	 * Seed the seeds of all tournaments are derived from
+	 */
+	private final long seed;
+
+	/**
+	 * Constructor that will simply set given parameters
+	 *
+	 * @param payoffMatrices the payoff matrices to play with
+	 * @param rosters the rosters to play with
+	 * @param rounds the amounts of rounds to play
+	 * @param runs amount of times every configuration is played
+	 * @param seed seed the seeds of all tournaments are derived from
+	 */
+	public SweepRunner(List<PayoffMatrix> payoffMatrices, List<StrategyMachine[]> rosters,
+			List<Integer> rounds, int runs, long seed) {
+		this.payoffMatrices = payoffMatrices;
+		this.rosters = rosters;
+		this.rounds = rounds;
+		this.runs = runs;
+		this.seed = seed;
+	}
+
+	/**
+	 * Will play every configuration {@link #runs} times on the given pool
+	 * and write the results of every configuration once all its runs are done.
+	 * The seed of every run only depends on its position in the grid, so the
+	 * results are the same no matter in which order the runs finish.
+	 *
+	 * @param pool the pool to play the tournaments on
+	 * @param out the writer to write the CSV to
+	 * @throws InterruptedException if interrupted while waiting for the runs
+	 * @throws ExecutionException if a tournament failed
+	 */
+	public void run(ForkJoinPool pool, PrintWriter out) throws InterruptedException, ExecutionException {
+		// Set up every configuration of the grid
+		final List<Configuration> configurations = new ArrayList<>();
+		for (PayoffMatrix payoffMatrix : payoffMatrices) {
+			for (StrategyMachine[] roster : rosters) {
+				for (int amountOfRounds : rounds) {
+					configurations.add(new Configuration(payoffMatrix, roster, amountOfRounds, runs));
+				}
+			}
+		}
+
+		// Submit every run of every configuration
+		final CompletionService<Integer> completionService = new ExecutorCompletionService<>(pool);
+		final SplittableRandom random = new SplittableRandom(seed);
+		for (int index = 0; index < configurations.size(); index++) {
+			final Configuration configuration = configurations.get(index);
+			for (int run = 0; run < runs; run++) {
+				final long runSeed = random.nextLong();
+				final int configurationIndex = index;
+				final int runIndex = run;
+				completionService.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() {
+						final TournamentEngine engine = new TournamentEngine(configuration.roster,
+								configuration.payoffMatrix, runSeed);
+						configuration.years[runIndex] = engine.play(configuration.rounds);
+						return configurationIndex;
+					}
+				});
+			}
+		}
+
+		out.println(HEADER);
+		out.flush();
+		// Write every configuration as soon as all its runs are done
+		final int[] remaining = new int[configurations.size()];
+		Arrays.fill(remaining, runs);
+		for (int i = 0; i < configurations.size() * runs; i++) {
+			final int index = completionService.take().get();
+			if (--remaining[index] == 0) {
+				configurations.get(index).write(out);
+				out.flush();
+			}
+		}
+	}
+
+	/**
+	 * Returns the half width of the 95% confidence interval of a mean.
+	 *
+	 * @param stddev the sample standard deviation
+	 * @param samples the amount of samples
+	 * @return the half width, 0 for a single sample
+	 */
+	private static double getMargin(double stddev, int samples) {
+		if (samples < 2) {
+			return 0;
+		}
+		final double quantile = samples - 1 <= T_VALUES.length ? T_VALUES[samples - 2] : Z_VALUE;
+
+		return quantile * stddev / Math.sqrt(samples);
+	}
+
+	/**
+	 * A single combination of payoff matrix, roster and amount of rounds
+	 * together with the results of its runs.
+	 */
+	private static class Configuration {
+		/**
+		 * The payoff matrix to play with
+		 */
+		private final PayoffMatrix payoffMatrix;
+		/**
+		 * The strategy of every player
+		 */
+		private final StrategyMachine[] roster;
+		/**
+		 * The amount of rounds to play
+		 */
+		private final int rounds;
+		/**
+		 * The years of prison of every player in every run, every run is
+		 * written by a single task
+		 */
+		private final long[][] years;
+
+		/**
+		 * Constructor that will simply set given parameters
+		 *
+		 * @param payoffMatrix the payoff matrix to play with
+		 * @param roster the strategy of every player
+		 * @param rounds the amount of rounds to play
+		 * @param runs the amount of runs
+		 */
+		private Configuration(PayoffMatrix payoffMatrix, StrategyMachine[] roster, int rounds, int runs) {
+			this.payoffMatrix = payoffMatrix;
+			this.roster = roster;
+			this.rounds = rounds;
+			this.years = new long[runs][];
+		}
+
+		/**
+		 * Will write a row for every strategy in the roster, containing
+		 * the mean years of prison of its players over all runs.
+		 *
+		 * @param out the writer to write to
+		 */
+		private void write(PrintWriter out) {
+			final StringBuilder rosterNames = new StringBuilder();
+			final Map<StrategyMachine, Integer> players = new LinkedHashMap<>();
+			for (StrategyMachine machine : roster) {
+				if (rosterNames.length() > 0) {
+					rosterNames.append('+');
+				}
+				rosterNames.append(machine);
+				final Integer count = players.get(machine);
+				players.put(machine, count == null ? 1 : count + 1);
+			}
+
+			for (Map.Entry<StrategyMachine, Integer> entry : players.entrySet()) {
+				// Mean years of prison of a player of this strategy in every run
+				final double[] means = new double[years.length];
+				for (int run = 0; run < years.length; run++) {
+					for (int player = 0; player < roster.length; player++) {
+						if (roster[player] == entry.getKey()) {
+							means[run] += years[run][player];
+						}
+					}
+					means[run] /= entry.getValue();
+				}
+
+				double mean = 0;
+				for (double value : means) {
+					mean += value;
+				}
+				mean /= means.length;
+				double variance = 0;
+				for (double value : means) {
+					variance += (value - mean) * (value - mean);
+				}
+				final double stddev = means.length > 1 ? Math.sqrt(variance / (means.length - 1)) : 0;
+				final double margin = getMargin(stddev, means.length);
+
+				out.printf(Locale.ROOT, "%s,%s,%d,%s,%d,%d,%.3f,%.3f,%.3f,%.3f%n", payoffMatrix, rosterNames,
+						rounds, entry.getKey(), entry.getValue(), means.length, mean, stddev, mean - margin,
+						mean + margin);
+			}
+		}
+	}
+
+	/**
+	 * Will play the grid given by the arguments and write the results.
+	 *
+	 * @param args optional key=value pairs, see {@link SweepRunner}
+	 * @throws Exception if the output can't be written or a tournament failed
+	 */
+	public static void main(String[] args) throws Exception {
+		// Defaults are the tournament of the ControllerAgent, played five times
+		String matrices = PayoffMatrix.DEFAULT.toString();
+		String rosters = "RANDOM+DEFECT+COOPERATE+TIT_FOR_TAT";
+		String rounds = "25";
+		int runs = 5;
+		long seed = System.nanoTime();
+		String output = "sweep.csv";
+		String strategies = null;
+		for (String arg : args) {
+			final int split = arg.indexOf('=');
+			if (split < 0) {
+				throw new IllegalArgumentException("Expected key=value, got " + arg);
+			}
+			final String value = arg.substring(split + 1);
+			switch (arg.substring(0, split)) {
+				case "matrices":
+					matrices = value;
+					break;
+				case "rosters":
+					rosters = value;
+					break;
+				case "rounds":
+					rounds = value;
+					break;
+				case "runs":
+					runs = Integer.parseInt(value);
+					break;
+				case "seed":
+					seed = Long.parseLong(value);
+					break;
+				case "out":
+					output = value;
+					break;
+				case "strategies":
+					strategies = value;
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown argument " + arg);
+			}
+		}
+
+		final List<PayoffMatrix> payoffMatrixList = new ArrayList<>();
+		for (String matrix : matrices.split(",")) {
+			payoffMatrixList.add(PayoffMatrix.parse(matrix));
+		}
+		final StrategyLibrary library = StrategyLibrary.getDefault().copy();
+		if (strategies != null) {
+			library.load(strategies);
+		}
+		final List<StrategyMachine[]> rosterList = new ArrayList<>();
+		for (String roster : rosters.split(",")) {
+			final String[] names = roster.split("\\+");
+			final StrategyMachine[] machines = new StrategyMachine[names.length];
+			for (int i = 0; i < names.length; i++) {
+				machines[i] = library.get(names[i].trim());
+			}
+			rosterList.add(machines);
+		}
+		final List<Integer> roundList = new ArrayList<>();
+		for (String amount : rounds.split(",")) {
+			roundList.add(Integer.parseInt(amount.trim()));
+		}
+
+		final SweepRunner runner = new SweepRunner(payoffMatrixList, rosterList, roundList, runs, seed);
+		final boolean console = output.equals("-");
+		try (PrintWriter out = new PrintWriter(console ? new OutputStreamWriter(System.out) : new FileWriter(output))) {
+			runner.run(ForkJoinPool.commonPool(), out);
+		}
+	}
+}
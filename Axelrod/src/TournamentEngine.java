@@ -0,0 +1,224 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Headless version of the tournament run by the {@link ControllerAgent}.
+ * Instead of sending messages between agents it plays the games directly
+ * on primitive arrays, using the same strategies compiled into
+ * {@link StrategyMachine}s, the same {@link RoundRobinSchedule} and the same
+ * {@link PayoffMatrix} as the agents do. This makes it possible to play
+ * millions of games in the time the agents need for a single tournament.
+ * Besides the StrategyTypes of the agents, any strategy of a
+ * {@link StrategyLibrary} can play.
+ *
+ * Run it with (all arguments are optional):
+ * <pre>
+ * java TournamentEngine [rounds] [seed] [strategies file]
+ * </pre>
+ *
+ * @author Mathijs van Bremen
+ * @see ControllerAgent, Strategy
+ */
+public class TournamentEngine {
+	/**
+	 * The strategy of every player in the tournament, null for a player
+	 * that makes no move
+	 */
+	private final StrategyMachine[] roster;
+	/**
+	 * The payoff matrix used to determine the years of prison
+	 */
+	private final PayoffMatrix payoffMatrix;
+	/**
+	 * Schedule containing the pairings of every round
+	 */
+	private final RoundRobinSchedule schedule;
+	/**
+	 * Random class used by the strategies that move by chance
+	 */
+	private final Random random;
+	/**
+	 * The state of the machine of every player against every opponent,
+	 * indexed by player * players + opponent
+	 */
+	private final int[] states;
+	/**
+	 * The total years of prison of every player
+	 */
+	private final long[] yearsOfPrison;
+
+	/**
+	 * Constructor that will set up a tournament for the given players
+	 *
+	 * @param roster the StrategyType of every player
+	 * @param payoffMatrix the payoff matrix to use
+	 * @param seed seed for the {@link Random} so runs can be repeated
+	 */
+	public TournamentEngine(Strategy.StrategyType[] roster, PayoffMatrix payoffMatrix, long seed) {
+		this(getMachines(roster), payoffMatrix, seed);
+	}
+
+	/**
+	 * Constructor that will set up a tournament for the given players
+	 *
+	 * @param roster the strategy of every player
+	 * @param payoffMatrix the payoff matrix to use
+	 * @param seed seed for the {@link Random} so runs can be repeated
+	 */
+	public TournamentEngine(StrategyMachine[] roster, PayoffMatrix payoffMatrix, long seed) {
+		this.roster = roster.clone();
+		this.payoffMatrix = payoffMatrix;
+		this.schedule = new RoundRobinSchedule(roster.length);
+		this.random = new Random(seed);
+		this.states = new int[roster.length * roster.length];
+		this.yearsOfPrison = new long[roster.length];
+		reset();
+	}
+
+	/**
+	 * Returns the StrategyMachine of every given StrategyType.
+	 *
+	 * @param roster the StrategyTypes
+	 * @return the StrategyMachines
+	 */
+	private static StrategyMachine[] getMachines(Strategy.StrategyType[] roster) {
+		final StrategyMachine[] machines = new StrategyMachine[roster.length];
+		for (int i = 0; i < roster.length; i++) {
+			machines[i] = roster[i].getMachine();
+		}
+
+		return machines;
+	}
+
+	/**
+	 * Will reset the years of prison and the memory of every player so a
+	 * new tournament can be played.
+	 */
+	public void reset() {
+		final int players = roster.length;
+		for (int player = 0; player < players; player++) {
+			for (int opponent = 0; opponent < players; opponent++) {
+				states[player * players + opponent] = roster[player] != null ? roster[player].getInitialState() : 0;
+			}
+		}
+		Arrays.fill(yearsOfPrison, 0);
+	}
+
+	/**
+	 * Will play the given amount of rounds. Every round every pair of
+	 * players plays two games against each other (A->B and B->A), using the
+	 * same pairings as the {@link ControllerAgent}. Pairs of deterministic
+	 * players that are both in their initial state get the outcome of their
+	 * games from the {@link PayoffCache} instead. Those don't use the Random
+	 * class, so the other games are played exactly the same either way.
+	 *
+	 * @param rounds the amount of rounds to play
+	 * @return the total years of prison of every player, indexed like the roster
+	 */
+	public long[] play(int rounds) {
+		final int players = roster.length;
+		// Pairs taken from the cache, indexed like the states
+		final boolean[] cached = new boolean[players * players];
+		for (int player = 0; player < players; player++) {
+			for (int opponent = player + 1; opponent < players; opponent++) {
+				final StrategyMachine machine = roster[player];
+				final StrategyMachine opponentMachine = roster[opponent];
+				if (machine == null || opponentMachine == null) {
+					// Players that make no move don't play
+					cached[player * players + opponent] = true;
+					cached[opponent * players + player] = true;
+				} else if (machine.isDeterministic() && opponentMachine.isDeterministic()
+						&& states[player * players + opponent] == machine.getInitialState()
+						&& states[opponent * players + player] == opponentMachine.getInitialState()) {
+					final long[] outcome = PayoffCache.getInstance().getOutcome(machine, opponentMachine,
+							rounds, payoffMatrix);
+					yearsOfPrison[player] += outcome[0];
+					yearsOfPrison[opponent] += outcome[1];
+					states[player * players + opponent] = (int) outcome[2];
+					states[opponent * players + player] = (int) outcome[3];
+					cached[player * players + opponent] = true;
+					cached[opponent * players + player] = true;
+				}
+			}
+		}
+
+		for (int round = 0; round < rounds; round++) {
+			for (int slot = 0; slot < schedule.getSlotCount(); slot++) {
+				final int[] pairs = schedule.getPairs(slot);
+				// Play the slot both ways around
+				for (int i = 0; i < pairs.length; i += 2) {
+					if (!cached[pairs[i] * players + pairs[i + 1]]) {
+						playGame(pairs[i], pairs[i + 1]);
+					}
+				}
+				for (int i = 0; i < pairs.length; i += 2) {
+					if (!cached[pairs[i] * players + pairs[i + 1]]) {
+						playGame(pairs[i + 1], pairs[i]);
+					}
+				}
+			}
+		}
+
+		return yearsOfPrison.clone();
+	}
+
+	/**
+	 * Will play a single game between the given players. Both players decide
+	 * on their move based on the state of their machine against the other,
+	 * which then moves on to the next state.
+	 *
+	 * @param player index of the player initiating the game
+	 * @param opponent index of the opponent
+	 */
+	private void playGame(int player, int opponent) {
+		final int players = roster.length;
+		final int index = player * players + opponent;
+		final int opponentIndex = opponent * players + player;
+		final StrategyMachine machine = roster[player];
+		final StrategyMachine opponentMachine = roster[opponent];
+		// Let both players decide on their move
+		final int move = machine.getMove(states[index], random);
+		final int opponentMove = opponentMachine.getMove(states[opponentIndex], random);
+
+		// Update the years of prison and move both machines on
+		yearsOfPrison[player] += payoffMatrix.getYears(move, opponentMove);
+		yearsOfPrison[opponent] += payoffMatrix.getYears(opponentMove, move);
+		states[index] = machine.getNextState(states[index], move, opponentMove);
+		states[opponentIndex] = opponentMachine.getNextState(states[opponentIndex], opponentMove, move);
+	}
+
+	/**
+	 * Will play a tournament between the same players as the
+	 * {@link ControllerAgent} and print the years of prison of every player.
+	 * When a file with strategies is given, every strategy of the default
+	 * {@link StrategyLibrary} and the file plays instead.
+	 *
+	 * @param args optional amount of rounds, seed and file with strategies
+	 * @throws IOException if the file with strategies can't be read
+	 */
+	public static void main(String[] args) throws IOException {
+		final int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 25;
+		final long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+
+		final StrategyMachine[] roster;
+		if (args.length > 2) {
+			final StrategyLibrary library = StrategyLibrary.getDefault().copy();
+			library.load(args[2]);
+			roster = library.getAll().toArray(new StrategyMachine[0]);
+		} else {
+			roster = getMachines(new Strategy.StrategyType[] {
+					Strategy.StrategyType.RANDOM,
+					Strategy.StrategyType.DEFECT,
+					Strategy.StrategyType.COOPERATE,
+					Strategy.StrategyType.TIT_FOR_TAT
+			});
+		}
+		final TournamentEngine engine = new TournamentEngine(roster, PayoffMatrix.DEFAULT, seed);
+		final long[] years = engine.play(rounds);
+
+		for (int i = 0; i < roster.length; i++) {
+			System.out.println(roster[i] + " | " + years[i]);
+		}
+	}
+}
@@ -0,0 +1,458 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * @brief journal of the game events of all agents in this JVM. Every agent
+ * writes its events as fixed-width records into a ring buffer of its own
+ * through a Writer, a background thread drains the ring buffers in batches
+ * into a memory-mapped file. If a ring buffer is full the event is dropped.
+ *
+ * A Writer queues itself and wakes the background thread on its first record
+ * since it was last drained, the thread sleeps while no Writer is queued. The
+ * ring buffer is allocated on the first record, an agent closes its Writer
+ * when it's taken down.
+ *
+ * header: magic (4) | record size (4) | start time in ms (8) | record count (8)
+ * record: time in ns since start (8) | sender (4) | receiver (4) | event (4) | move (4) | round (4) | unused (4)
+ *
+ * The names of the ids are written to <journal>.names, one per line. The
+ * journal is written to the file set by the journal system property,
+ * events.journal by default. Run this class with a journal file to print it.
+ */
+public class EventJournal {
+	private static final int MAGIC = 0x4A524E4C;
+	private static final int HEADER_SIZE = 24;
+	private static final int RECORD_SIZE = 32;
+	private static final int RECORD_INTS = 5;
+	private static final int RING_SIZE = 1 << 8;
+	private static final int MAPPED_SIZE = 1 << 20;
+
+	private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+	private final AtomicInteger nextId = new AtomicInteger();
+	private final Set<Writer> writers = ConcurrentHashMap.newKeySet();
+	private final Queue<Writer> pending = new ConcurrentLinkedQueue<>();
+	private volatile boolean idle = false;
+	private long closedDropped = 0;
+	private final long startNanos = System.nanoTime();
+	private final String path;
+	private FileChannel channel;
+	private MappedByteBuffer header;
+	private MappedByteBuffer buffer;
+	private long mappedOffset;
+	private long recordCount;
+	private final Thread drainThread;
+	private volatile boolean closing = false;
+
+	/*
+	 * @brief holder of the journal of this JVM, so it's only opened once used.
+	 */
+	private static class Holder {
+		private static final EventJournal INSTANCE = new EventJournal(System.getProperty("journal", "events.journal"));
+	}
+
+	/*
+	 * @brief constructor that will open the given journal file and start the background thread.
+	 * @param String path, path of the journal file.
+	 */
+	private EventJournal(String path) {
+		this.path = path;
+		try {
+			@SuppressWarnings("resource")
+			final RandomAccessFile file = new RandomAccessFile(path, "rw");
+			file.setLength(0);
+			channel = file.getChannel();
+			// Write the header, the record count is kept up to date by flush()
+			header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+			header.putInt(MAGIC);
+			header.putInt(RECORD_SIZE);
+			header.putLong(System.currentTimeMillis());
+			header.putLong(0);
+			map(HEADER_SIZE);
+		} catch (IOException e) {
+			// Keep running without journal
+			System.err.println("Could not open journal " + path + ": " + e.getMessage());
+			channel = null;
+		}
+
+		drainThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drain();
+			}
+		}, "EventJournal");
+		drainThread.setDaemon(true);
+		drainThread.start();
+
+		// Make sure all events end up in the file when the JVM stops
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+			@Override
+			public void run() {
+				close();
+			}
+		}, "EventJournal-close"));
+	}
+
+	/*
+	 * @brief returns the journal of this JVM.
+	 * @return the EventJournal.
+	 */
+	public static EventJournal getInstance() {
+		return Holder.INSTANCE;
+	}
+
+	/*
+	 * @brief returns the id for the given name, handing out a new one if the name doesn't have one yet. Ids are used instead of names in the records.
+	 * @param String name, the name of an agent.
+	 * @return the id of the name.
+	 */
+	public int getId(String name) {
+		final Integer id = ids.get(name);
+		if (id != null) {
+			return id;
+		}
+
+		synchronized (ids) {
+			// Another thread may have handed out an id in the meantime
+			final Integer existing = ids.get(name);
+			if (existing != null) {
+				return existing;
+			}
+			final int newId = nextId.getAndIncrement();
+			ids.put(name, newId);
+			return newId;
+		}
+	}
+
+	/*
+	 * @brief returns a new Writer with a ring buffer of its own. A Writer may only be used by a single thread at a time.
+	 * @return the Writer.
+	 */
+	public Writer createWriter() {
+		final Writer writer = new Writer(this);
+		writers.add(writer);
+
+		return writer;
+	}
+
+	/*
+	 * @brief will queue the given Writer for the background thread and wake the thread if it's parked.
+	 * @param Writer writer, the Writer that got a record or was closed.
+	 */
+	private void schedule(Writer writer) {
+		pending.add(writer);
+		// Written after the queue, read by the background thread before
+		// parking, so either it sees the Writer or we see it's idle
+		if (idle) {
+			LockSupport.unpark(drainThread);
+		}
+	}
+
+	/*
+	 * @brief runs on the background thread, draining the queued ring buffers until the journal is closed and parking while there are none.
+	 */
+	private void drain() {
+		while (!closing) {
+			final Writer writer = pending.poll();
+			if (writer != null) {
+				drain(writer);
+				continue;
+			}
+
+			// Nothing left to drain, so let the header count all records
+			flush();
+			idle = true;
+			if (pending.isEmpty() && !closing) {
+				LockSupport.park(this);
+			}
+			idle = false;
+		}
+	}
+
+	/*
+	 * @brief will drain the given ring buffer into the journal file and forget it once it's closed and empty.
+	 * @param Writer writer, the Writer to drain.
+	 */
+	private synchronized void drain(Writer writer) {
+		// Unqueued before draining, so records written from now on queue it again
+		writer.queued = false;
+		writer.drainTo(this);
+		if (writer.closed && writer.isEmpty() && writers.remove(writer)) {
+			closedDropped += writer.dropped;
+		}
+	}
+
+	/*
+	 * @brief will drain all ring buffers into the journal file.
+	 */
+	private synchronized void drainAll() {
+		for (Writer writer : writers) {
+			writer.drainTo(this);
+		}
+	}
+
+	/*
+	 * @brief will write a single record to the journal file, mapping the next region of the file if the current one is full.
+	 * @param long time, time of the event in ns since the journal was opened.
+	 * @param int[] data, ring buffer containing the other values of the record.
+	 * @param int offset, offset of the values in the ring buffer.
+	 */
+	private void write(long time, int[] data, int offset) {
+		if (channel == null) {
+			return;
+		}
+
+		try {
+			if (buffer.remaining() < RECORD_SIZE) {
+				map(mappedOffset + buffer.position());
+			}
+			buffer.putLong(time);
+			for (int i = 0; i < RECORD_INTS; i++) {
+				buffer.putInt(data[offset + i]);
+			}
+			buffer.putInt(0);
+			recordCount++;
+		} catch (IOException e) {
+			System.err.println("Could not write journal " + path + ": " + e.getMessage());
+			channel = null;
+		}
+	}
+
+	/*
+	 * @brief will map the region of the journal file starting at the given offset.
+	 * @param long offset, offset of the region in the journal file.
+	 */
+	private void map(long offset) throws IOException {
+		if (buffer != null) {
+			buffer.force();
+			flush();
+		}
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, offset, MAPPED_SIZE);
+		mappedOffset = offset;
+	}
+
+	/*
+	 * @brief will write the amount of records written so far to the header, so the records can be read even if the JVM is killed before closing.
+	 */
+	private synchronized void flush() {
+		if (channel != null) {
+			header.putLong(HEADER_SIZE - Long.BYTES, recordCount);
+		}
+	}
+
+	/*
+	 * @brief will stop the background thread, write the remaining records and the names of all ids to disk. Called when the JVM stops.
+	 */
+	public void close() {
+		closing = true;
+		LockSupport.unpark(drainThread);
+		try {
+			drainThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		synchronized (this) {
+			drainAll();
+			if (channel == null) {
+				return;
+			}
+
+			long dropped = closedDropped;
+			for (Writer writer : writers) {
+				dropped += writer.dropped;
+			}
+			if (dropped > 0) {
+				System.err.println("Journal " + path + " dropped " + dropped + " events");
+			}
+
+			try {
+				// Update the record count in the header and write everything to disk
+				flush();
+				header.force();
+				buffer.force();
+				// Cut off the unused part of the last mapped region
+				channel.truncate(HEADER_SIZE + recordCount * RECORD_SIZE);
+				channel.close();
+				channel = null;
+
+				writeNames();
+			} catch (IOException e) {
+				System.err.println("Could not close journal " + path + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/*
+	 * @brief will write the names of all ids to the names file, one name per line in order of their id.
+	 */
+	private void writeNames() throws IOException {
+		final String[] names = new String[nextId.get()];
+		for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+			names[entry.getValue()] = entry.getKey();
+		}
+
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(path + ".names"), StandardCharsets.UTF_8))) {
+			for (String name : names) {
+				out.println(name);
+			}
+		}
+	}
+
+	/*
+	 * @brief single-producer ring buffer an agent writes its events to. Only the owning thread writes records and moves the head, only the background thread reads records and moves the tail.
+	 */
+	public static class Writer {
+		private final EventJournal journal;
+		private long[] times;
+		private int[] data;
+		private volatile long head = 0;
+		private volatile long tail = 0;
+		private volatile long dropped = 0;
+		private volatile boolean queued = false;
+		private volatile boolean closed = false;
+
+		/*
+		 * @brief private constructor, use EventJournal#createWriter().
+		 * @param EventJournal journal, the journal this Writer belongs to.
+		 */
+		private Writer(EventJournal journal) {
+			this.journal = journal;
+		}
+
+		/*
+		 * @brief will write the given event to the ring buffer. Never blocks, if the ring buffer is full the event is dropped.
+		 * @param int sender, id of the agent that sent the message.
+		 * @param int receiver, id of the agent that received the message.
+		 * @param int event, type of the event, defined by the caller.
+		 * @param int move, the move of the event or -1 if there is none.
+		 * @param int round, the round of the event.
+		 * @return true if the event was written, false if it was dropped.
+		 */
+		public boolean record(int sender, int receiver, int event, int move, int round) {
+			final long position = head;
+			if (position - tail >= RING_SIZE) {
+				dropped++;
+				return false;
+			}
+			if (times == null) {
+				// Only agents that write events get a ring buffer
+				data = new int[RING_SIZE * RECORD_INTS];
+				times = new long[RING_SIZE];
+			}
+
+			final int index = (int) (position & (RING_SIZE - 1));
+			final int offset = index * RECORD_INTS;
+			times[index] = System.nanoTime();
+			data[offset] = sender;
+			data[offset + 1] = receiver;
+			data[offset + 2] = event;
+			data[offset + 3] = move;
+			data[offset + 4] = round;
+			// Publish the record to the background thread
+			head = position + 1;
+			if (!queued) {
+				queued = true;
+				journal.schedule(this);
+			}
+
+			return true;
+		}
+
+		/*
+		 * @brief will hand the remaining records to the background thread, after which the journal forgets this Writer. No records may be written afterwards.
+		 */
+		public void close() {
+			closed = true;
+			journal.schedule(this);
+		}
+
+		/*
+		 * @brief checks whether all records were drained.
+		 * @return boolean, whether the ring buffer is empty.
+		 */
+		private boolean isEmpty() {
+			return head == tail;
+		}
+
+		/*
+		 * @brief will write all records in the ring buffer to the given journal.
+		 * @param EventJournal journal, the journal to write to.
+		 * @return the amount of records drained.
+		 */
+		private int drainTo(EventJournal journal) {
+			final long end = head;
+			if (end == tail) {
+				return 0;
+			}
+			long position = tail;
+			for (; position < end; position++) {
+				final int index = (int) (position & (RING_SIZE - 1));
+				journal.write(times[index] - journal.startNanos, data, index * RECORD_INTS);
+			}
+			final int drained = (int) (position - tail);
+			// Hand the slots back to the producer
+			tail = position;
+
+			return drained;
+		}
+	}
+
+	/*
+	 * @brief will print the records of the given journal file.
+	 * @param String[] args, the path of the journal file.
+	 */
+	public static void main(String[] args) throws IOException {
+		final String path = args.length > 0 ? args[0] : "events.journal";
+		// The names are only written on close, without them the ids are printed
+		final Path namesPath = Paths.get(path + ".names");
+		final List<String> names = Files.exists(namesPath)
+				? Files.readAllLines(namesPath, StandardCharsets.UTF_8) : Collections.<String>emptyList();
+
+		try (RandomAccessFile file = new RandomAccessFile(path, "r");
+				FileChannel channel = file.getChannel()) {
+			final MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (in.getInt() != MAGIC || in.getInt() != RECORD_SIZE) {
+				throw new IOException(path + " is not a journal");
+			}
+			final long startMillis = in.getLong();
+			// Never read past the end of the file, even if the header is wrong
+			final long count = Math.min(in.getLong(), (channel.size() - HEADER_SIZE) / RECORD_SIZE);
+			System.out.println("Journal started at " + new Date(startMillis) + ", " + count + " records");
+
+			final StringBuilder line = new StringBuilder();
+			for (long i = 0; i < count; i++) {
+				final long time = in.getLong();
+				final int sender = in.getInt();
+				final int receiver = in.getInt();
+				final int event = in.getInt();
+				final int move = in.getInt();
+				final int round = in.getInt();
+				in.getInt();
+
+				line.setLength(0);
+				line.append(time / 1000).append("us | ")
+						.append(sender < names.size() ? names.get(sender) : String.valueOf(sender)).append(" > ")
+						.append(receiver < names.size() ? names.get(receiver) : String.valueOf(receiver))
+						.append(" | ").append(event).append(" | ").append(move).append(" | ").append(round);
+				System.out.println(line);
+			}
+		}
+	}
+}
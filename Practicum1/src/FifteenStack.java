@@ -1,14 +1,21 @@
-
+/*
+ * @brief the stacks of the game, packed into a single int with BITS bits per
+ * stack, the first stack in the lowest bits. Taking from a stack and checking
+ * whether the game is over are bit operations on the packed state, which is
+ * sent as one byte per stack in the content of a game message.
+ */
 public class FifteenStack {
-	private int firstStack = 3;
-	private int secondStack = 5;
-	private int thirdStack = 7;
+	public static final int STACKS = 3;
+	public static final int BITS = 8;
+	public static final int MAX_HEIGHT = (1 << BITS) - 1;
+
+	private int state;
 
 	/*
 	 * @brief default constructor.
 	 */
 	FifteenStack() {
-
+		this(3, 5, 7);
 	}
 
 	/*
@@ -18,9 +25,38 @@ public class FifteenStack {
 	 * @param int thirdStack, amount of the third stack. 
 	 */
 	FifteenStack(int firstStack, int secondStack, int thirdStack) {
-		this.firstStack = firstStack;
-		this.secondStack = secondStack;
-		this.thirdStack = thirdStack;
+		this.state = pack(firstStack, secondStack, thirdStack);
+	}
+
+	/*
+	 * @brief packs the amounts of the stacks into a single int.
+	 * @param int firstStack, amount of the first stack.
+	 * @param int secondStack, amount of the second stack.
+	 * @param int thirdStack, amount of the third stack.
+	 * @return int, the packed state.
+	 */
+	public static int pack(int firstStack, int secondStack, int thirdStack) {
+		return height(firstStack) | (height(secondStack) << BITS) | (height(thirdStack) << (2 * BITS));
+	}
+
+	/*
+	 * @brief checks if the amount fits in a stack, amounts below zero are empty stacks.
+	 * @param int amount, the amount of the stack.
+	 * @return int, the amount of the stack.
+	 */
+	private static int height(int amount) {
+		if (amount > MAX_HEIGHT) {
+			throw new IllegalArgumentException("A stack can hold at most " + MAX_HEIGHT + ", got " + amount);
+		}
+		return Math.max(amount, 0);
+	}
+
+	/*
+	 * @brief returns the packed state of all stacks.
+	 * @return int, the packed state.
+	 */
+	public int getPacked() {
+		return state;
 	}
 
 	/*
@@ -28,37 +64,22 @@ public class FifteenStack {
 	 * @param int stack, the stack that the agent wants to look at.
 	 */
 	public int look(int stack) {
-		switch (stack) {
-		case 1:
-			return firstStack;
-		case 2:
-			return secondStack;
-		case 3:
-			return thirdStack;
-		default:
+		if (stack < 1 || stack > STACKS) {
 			return 0;
 		}
+		return (state >>> ((stack - 1) * BITS)) & MAX_HEIGHT;
 	}
 
 	/*
-	 * @brief takes an amount of the stack.
+	 * @brief takes an amount of the stack, at most what is left on it.
 	 * @param int stack, tje stack the agent wants to take from.
 	 * @param int amount, the amount the agent wants to take.
 	 */
 	public void take(int stack, int amount) {
-		switch (stack) {
-		case 1:
-			firstStack -= amount;
-			break;
-		case 2:
-			secondStack -= amount;
-			break;
-		case 3:
-			thirdStack -= amount;
-			break;
-		default:
-			break;
+		if (stack < 1 || stack > STACKS || amount <= 0) {
+			return;
 		}
+		state -= Math.min(amount, look(stack)) << ((stack - 1) * BITS);
 	}
 
 	/*
@@ -66,17 +87,14 @@ public class FifteenStack {
 	 * @return boolean, whether the game is over or not.
 	 */
 	public boolean gameOver() {
-		if (firstStack <= 0 && secondStack <= 0 && thirdStack <= 0) {
-			return true;
-		}
-		return false;
+		return state == 0;
 	}
 
 	/*
 	 * @brief shows current state of the game.
 	 */
 	public String toString() {
-		return firstStack + " " + secondStack + " " + thirdStack;
+		return look(1) + " " + look(2) + " " + look(3);
 	}
 
 	/*
@@ -88,4 +106,22 @@ public class FifteenStack {
 		return new FifteenStack(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
 	}
 
+	/*
+	 * @brief encodes the state as content of a message, one byte per stack.
+	 * @return byte[], the encoded state.
+	 */
+	public byte[] toBytes() {
+		return new byte[] { (byte) state, (byte) (state >>> BITS), (byte) (state >>> (2 * BITS)) };
+	}
+
+	/*
+	 * @brief creates a new FifteenStack based on the provided content.
+	 * @param byte[] bytes, content that contains one byte per stack.
+	 */
+	public static FifteenStack fromBytes(byte[] bytes) {
+		FifteenStack stack = new FifteenStack();
+		stack.state = (bytes[0] & MAX_HEIGHT) | ((bytes[1] & MAX_HEIGHT) << BITS) | ((bytes[2] & MAX_HEIGHT) << (2 * BITS));
+		return stack;
+	}
+
 }
@@ -0,0 +1,311 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * @brief solves positions by searching the game tree with negamax and
+ * alpha-beta, under normal rules (taking the last item wins) or misere
+ * rules (taking the last item loses). A position is either won or lost, so
+ * the search stops at the first winning move.
+ *
+ * Solved positions are kept in a fixed-size transposition table shared by
+ * all threads, indexed by the Zobrist hash of the MultiStack. Every slot is
+ * two longs in an AtomicLongArray: the hash xor the data, and the data. A slot written by two
+ * threads at once no longer matches its hash and is simply a miss, so the
+ * table needs no locks. The moves of the root are searched in parallel.
+ *
+ * Run it with: java GameSearch [normal|misere] heights...
+ */
+public class GameSearch {
+	public static final int DEFAULT_TABLE_BITS = 20;
+
+	private static final long WON = 1L << 32;
+	private static final long SOLVED = 1L << 33;
+	private static final int ITEMS_SHIFT = 34;
+	private static final int MAX_ITEMS = 0xFFFF;
+	private static final int LOST = -1;
+	private static final int ABORTED = 0;
+
+	private final boolean misere;
+	private final AtomicLongArray table;
+	private final int mask;
+	private final LongAdder nodes = new LongAdder();
+
+	/*
+	 * @brief constructor that creates the transposition table.
+	 * @param int tableBits, the table has 2^tableBits buckets of two slots.
+	 * @param boolean misere, whether taking the last item loses.
+	 */
+	GameSearch(int tableBits, boolean misere) {
+		if (tableBits < 1 || tableBits > 26) {
+			throw new IllegalArgumentException("Table bits must be 1-26, got " + tableBits);
+		}
+		this.misere = misere;
+		this.table = new AtomicLongArray(4 << tableBits);
+		this.mask = (1 << tableBits) - 1;
+	}
+
+	/*
+	 * @brief finds the best move of the given position, using all cores.
+	 * @param MultiStack stack, the position, left unchanged.
+	 * @return int, the move, see NimSolver.encode, 0 if the game is over.
+	 */
+	public int getBestMove(MultiStack stack) {
+		if (stack.gameOver()) {
+			return 0;
+		}
+		long data = lookup(stack.getHash());
+		if (data != 0) {
+			return (int) data;
+		}
+
+		final int[] moves = new int[stack.getTotal()];
+		final int count = stack.generateMoves(moves);
+		final int[] heights = stack.getHeights();
+		final AtomicBoolean stop = new AtomicBoolean();
+		final AtomicInteger winner = new AtomicInteger();
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (int i = 0; i < count; i++) {
+			final int move = moves[i];
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					// Every task plays on a copy of its own
+					MultiStack copy = new MultiStack(heights);
+					copy.apply(move);
+					if (new Worker(copy.getTotal(), stop).negamax(copy, 0) == LOST) {
+						winner.compareAndSet(0, move);
+						stop.set(true);
+					}
+					return null;
+				}
+			});
+		}
+		try {
+			for (Future<Void> future : ForkJoinPool.commonPool().invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+
+		int move = winner.get();
+		if (move != 0) {
+			store(stack.getHash(), stack.getTotal(), move, true);
+		} else {
+			// Every move loses, so take one from the largest stack to last as long as possible
+			move = NimSolver.encode(largest(heights) + 1, 1);
+			store(stack.getHash(), stack.getTotal(), move, false);
+		}
+		return move;
+	}
+
+	/*
+	 * @brief finds the best move of the given position.
+	 * @param FifteenStack stack, the position.
+	 * @return int, the move, see NimSolver.encode, 0 if the game is over.
+	 */
+	public int getBestMove(FifteenStack stack) {
+		return getBestMove(new MultiStack(stack));
+	}
+
+	/*
+	 * @brief checks if the player to move wins the given position with perfect play.
+	 * @param MultiStack stack, the position.
+	 * @return boolean, whether the position is won.
+	 */
+	public boolean isWinning(MultiStack stack) {
+		if (stack.gameOver()) {
+			return misere;
+		}
+		getBestMove(stack);
+		return (lookup(stack.getHash()) & WON) != 0;
+	}
+
+	/*
+	 * @brief returns the amount of positions searched so far.
+	 * @return long, the amount of positions.
+	 */
+	public long getNodes() {
+		return nodes.sum();
+	}
+
+	/*
+	 * @brief checks whether taking the last item loses.
+	 * @return boolean, whether this search plays misere.
+	 */
+	public boolean isMisere() {
+		return misere;
+	}
+
+	/*
+	 * @brief returns the first long of the bucket of a position. A bucket
+	 * holds two slots: one keeping the position with the most items, as it
+	 * took the longest to solve, and one that is always replaced.
+	 * @param long hash, the hash of the position.
+	 * @return int, the index of the bucket.
+	 */
+	private int bucket(long hash) {
+		return ((int) (hash ^ (hash >>> 32)) & mask) << 2;
+	}
+
+	/*
+	 * @brief looks up a position in the transposition table.
+	 * @param long hash, the hash of the position.
+	 * @return long, the data of the position, 0 if it isn't in the table.
+	 */
+	private long lookup(long hash) {
+		int bucket = bucket(hash);
+		for (int slot = bucket; slot < bucket + 4; slot += 2) {
+			long data = table.get(slot + 1);
+			if ((table.get(slot) ^ data) == hash) {
+				return data;
+			}
+		}
+		return 0;
+	}
+
+	/*
+	 * @brief stores a solved position in the transposition table.
+	 * @param long hash, the hash of the position.
+	 * @param int total, the amount of items of the position.
+	 * @param int move, the best move.
+	 * @param boolean won, whether the player to move wins.
+	 */
+	private void store(long hash, int total, int move, boolean won) {
+		int slot = bucket(hash);
+		long data = SOLVED | (won ? WON : 0) | ((long) Math.min(total, MAX_ITEMS) << ITEMS_SHIFT)
+				| (move & 0xFFFFFFFFL);
+		// Keep the bigger position in the first slot, the other goes in the second
+		if ((int) ((table.get(slot + 1) >>> ITEMS_SHIFT) & MAX_ITEMS) > Math.min(total, MAX_ITEMS)) {
+			slot += 2;
+		}
+		table.set(slot, hash ^ data);
+		table.set(slot + 1, data);
+	}
+
+	/*
+	 * @brief returns the index of the largest stack.
+	 * @param int[] heights, the heights of the stacks.
+	 * @return int, the index.
+	 */
+	private static int largest(int[] heights) {
+		int largest = 0;
+		for (int i = 1; i < heights.length; i++) {
+			if (heights[i] > heights[largest]) {
+				largest = i;
+			}
+		}
+		return largest;
+	}
+
+	/*
+	 * @brief the state of a single thread of the search: a move buffer for
+	 * every ply, so searching allocates nothing.
+	 */
+	private class Worker {
+		private final int[][] buffers;
+		private final AtomicBoolean stop;
+		private long searched = 0;
+
+		/*
+		 * @brief constructor that allocates the move buffers.
+		 * @param int total, the amount of items left, which limits both the depth and the amount of moves.
+		 * @param AtomicBoolean stop, set once the search can stop.
+		 */
+		Worker(int total, AtomicBoolean stop) {
+			this.buffers = new int[total + 1][];
+			for (int ply = 0; ply <= total; ply++) {
+				buffers[ply] = new int[total - ply];
+			}
+			this.stop = stop;
+		}
+
+		/*
+		 * @brief searches the given position.
+		 * @param MultiStack stack, the position, restored before returning.
+		 * @param int ply, the depth below the root move.
+		 * @return int, 1 if the player to move wins, -1 if not, 0 if the search stopped.
+		 */
+		int negamax(MultiStack stack, int ply) {
+			int result = search(stack, ply);
+			if (ply == 0) {
+				nodes.add(searched);
+			}
+			return result;
+		}
+
+		/*
+		 * @brief searches the given position, see negamax.
+		 */
+		private int search(MultiStack stack, int ply) {
+			searched++;
+			if (stack.gameOver()) {
+				// The opponent took the last item
+				return misere ? 1 : LOST;
+			}
+			long hash = stack.getHash();
+			long data = lookup(hash);
+			if (data != 0) {
+				return (data & WON) != 0 ? 1 : LOST;
+			}
+			if (stop.get()) {
+				return ABORTED;
+			}
+
+			int[] moves = buffers[ply];
+			int count = stack.generateMoves(moves);
+			for (int i = 0; i < count; i++) {
+				stack.apply(moves[i]);
+				int value = -search(stack, ply + 1);
+				stack.undo(moves[i]);
+				if (value == ABORTED) {
+					return ABORTED;
+				}
+				if (value > 0) {
+					// Beta cutoff, nothing beats a win
+					store(hash, stack.getTotal(), moves[i], true);
+					return 1;
+				}
+			}
+			store(hash, stack.getTotal(), moves[count - 1], false);
+			return LOST;
+		}
+	}
+
+	/*
+	 * @brief solves the position given by the arguments and prints the best move.
+	 * @param String[] args, normal or misere followed by the heights of the stacks.
+	 */
+	public static void main(String[] args) {
+		boolean misere = args.length > 0 && args[0].equals("misere");
+		int first = args.length > 0 && (misere || args[0].equals("normal")) ? 1 : 0;
+		int[] heights = new int[Math.max(args.length - first, 0)];
+		for (int i = 0; i < heights.length; i++) {
+			heights[i] = Integer.parseInt(args[first + i]);
+		}
+		if (heights.length == 0) {
+			heights = new int[] { 3, 5, 7 };
+		}
+
+		MultiStack stack = new MultiStack(heights);
+		GameSearch search = new GameSearch(DEFAULT_TABLE_BITS, misere);
+		long start = System.nanoTime();
+		int move = search.getBestMove(stack);
+		long time = System.nanoTime() - start;
+		System.out.println((misere ? "misere " : "normal ") + stack + " | "
+				+ (search.isWinning(stack) ? "won" : "lost") + " | take " + NimSolver.getAmount(move)
+				+ " from stack " + NimSolver.getStack(move) + " | " + search.getNodes() + " positions in "
+				+ time / 1000000 + " ms");
+	}
+}
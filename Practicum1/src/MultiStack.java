@@ -0,0 +1,197 @@
+/*
+ * @brief any amount of stacks of any height, kept in an int array. The
+ * nim-sum, the total amount of items and a Zobrist hash of the stacks are
+ * updated on every move, so a search can look at them without walking the
+ * stacks. Moves are encoded like in NimSolver and can be undone, so a
+ * search can play a whole game tree on a single MultiStack.
+ *
+ * The Zobrist key of a stack at a height is mixed from the stack and the
+ * height, so positions of different MultiStacks have the same hash.
+ */
+public class MultiStack {
+	private final int[] heights;
+	private int nimSum = 0;
+	private int total = 0;
+	private long hash = 0;
+
+	/*
+	 * @brief constructor to initializes the stacks.
+	 * @param int... heights, amount of every stack.
+	 */
+	MultiStack(int... heights) {
+		this.heights = new int[heights.length];
+		for (int i = 0; i < heights.length; i++) {
+			if (heights[i] < 0) {
+				throw new IllegalArgumentException("Stack " + (i + 1) + " can't be lower than 0");
+			}
+			set(i, heights[i]);
+		}
+	}
+
+	/*
+	 * @brief constructor that copies the stacks of a FifteenStack.
+	 * @param FifteenStack stack, the stacks to copy.
+	 */
+	MultiStack(FifteenStack stack) {
+		this(stack.look(1), stack.look(2), stack.look(3));
+	}
+
+	/*
+	 * @brief returns the amount of stacks.
+	 * @return int, the amount of stacks.
+	 */
+	public int size() {
+		return heights.length;
+	}
+
+	/*
+	 * @brief looks at the amount left on a stack.
+	 * @param int stack, the stack to look at, starting at 1 like FifteenStack.
+	 */
+	public int look(int stack) {
+		if (stack < 1 || stack > heights.length) {
+			return 0;
+		}
+		return heights[stack - 1];
+	}
+
+	/*
+	 * @brief takes an amount of the stack, at most what is left on it.
+	 * @param int stack, the stack to take from.
+	 * @param int amount, the amount to take.
+	 */
+	public void take(int stack, int amount) {
+		if (stack < 1 || stack > heights.length || amount <= 0) {
+			return;
+		}
+		set(stack - 1, heights[stack - 1] - Math.min(amount, heights[stack - 1]));
+	}
+
+	/*
+	 * @brief plays a move, see NimSolver.encode.
+	 * @param int move, the move.
+	 */
+	public void apply(int move) {
+		take(NimSolver.getStack(move), NimSolver.getAmount(move));
+	}
+
+	/*
+	 * @brief puts the items of a move back, the move must have been played
+	 * with exactly the amount it takes.
+	 * @param int move, the move.
+	 */
+	public void undo(int move) {
+		int i = NimSolver.getStack(move) - 1;
+		set(i, heights[i] + NimSolver.getAmount(move));
+	}
+
+	/*
+	 * @brief changes the height of a stack and updates the nim-sum, total and hash.
+	 * @param int i, index of the stack.
+	 * @param int height, the new height.
+	 */
+	private void set(int i, int height) {
+		int old = heights[i];
+		nimSum ^= old ^ height;
+		total += height - old;
+		hash ^= zobrist(i, old) ^ zobrist(i, height);
+		heights[i] = height;
+	}
+
+	/*
+	 * @brief returns the Zobrist key of a stack at a height, the splitmix64
+	 * finalizer of both.
+	 * @param int i, index of the stack.
+	 * @param int height, the height of the stack.
+	 * @return long, the key.
+	 */
+	private static long zobrist(int i, int height) {
+		long z = (((long) i << 32) | height) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/*
+	 * @brief writes every legal move into the buffer, the biggest amounts of
+	 * every stack first.
+	 * @param int[] buffer, the buffer to write to, at least getTotal() long.
+	 * @return int, the amount of moves written.
+	 */
+	public int generateMoves(int[] buffer) {
+		int count = 0;
+		for (int i = 0; i < heights.length; i++) {
+			for (int amount = heights[i]; amount > 0; amount--) {
+				buffer[count++] = NimSolver.encode(i + 1, amount);
+			}
+		}
+		return count;
+	}
+
+	/*
+	 * @brief returns the nim-sum of all stacks.
+	 * @return int, the nim-sum.
+	 */
+	public int getNimSum() {
+		return nimSum;
+	}
+
+	/*
+	 * @brief returns the amount of items on all stacks, which is also the amount of legal moves.
+	 * @return int, the amount of items.
+	 */
+	public int getTotal() {
+		return total;
+	}
+
+	/*
+	 * @brief returns the Zobrist hash of the stacks.
+	 * @return long, the hash.
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	/*
+	 * @brief checks if all stacks are empty.
+	 * @return boolean, whether the game is over or not.
+	 */
+	public boolean gameOver() {
+		return total == 0;
+	}
+
+	/*
+	 * @brief returns a copy of the heights of all stacks.
+	 * @return int[], the heights.
+	 */
+	public int[] getHeights() {
+		return heights.clone();
+	}
+
+	/*
+	 * @brief shows current state of the game.
+	 */
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < heights.length; i++) {
+			if (i > 0) {
+				builder.append(' ');
+			}
+			builder.append(heights[i]);
+		}
+		return builder.toString();
+	}
+
+	/*
+	 * @brief creates a new MultiStack based on the provided String.
+	 * @param String s, String that contains the amount of the stacks.
+	 */
+	public static MultiStack fromString(String s) {
+		String[] parts = s.trim().split(" +");
+		int[] heights = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			heights[i] = Integer.parseInt(parts[i]);
+		}
+		return new MultiStack(heights);
+	}
+}
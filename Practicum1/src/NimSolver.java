@@ -0,0 +1,285 @@
+/*
+ * @brief perfect play for Nim with any amount of stacks of any height. The
+ * best move of every position up to the given heights is worked out once
+ * with the nim-sum and kept in a table, so picking a move is a single lookup.
+ * A position is numbered by its heights in mixed radix, the first stack
+ * being the lowest digit.
+ *
+ * Under normal rules taking the last item wins, under misere rules it loses.
+ * Perry plays misere: whoever empties the stacks congratulates the opponent.
+ */
+public class NimSolver {
+	public static final int MAX_POSITIONS = 1 << 24;
+
+	private final int[] heights;
+	private final int[] radix;
+	private final boolean misere;
+	private final int[] moves;
+	private final boolean[] winning;
+
+	/*
+	 * @brief constructor that solves every position up to the given heights.
+	 * @param int[] heights, the highest amount of every stack.
+	 * @param boolean misere, whether taking the last item loses.
+	 */
+	NimSolver(int[] heights, boolean misere) {
+		this.heights = heights.clone();
+		this.misere = misere;
+		this.radix = new int[heights.length];
+		long positions = 1;
+		for (int i = 0; i < heights.length; i++) {
+			if (heights[i] < 0) {
+				throw new IllegalArgumentException("Stack " + (i + 1) + " can't be lower than 0");
+			}
+			radix[i] = (int) positions;
+			positions *= heights[i] + 1;
+			if (positions > MAX_POSITIONS) {
+				throw new IllegalArgumentException("More than " + MAX_POSITIONS + " positions");
+			}
+		}
+
+		moves = new int[(int) positions];
+		winning = new boolean[(int) positions];
+		int[] position = new int[heights.length];
+		for (int index = 0; index < moves.length; index++) {
+			// Digits of the index are the heights of the stacks
+			int rest = index;
+			for (int i = 0; i < position.length; i++) {
+				position[i] = rest % (heights[i] + 1);
+				rest /= heights[i] + 1;
+			}
+			solve(position, index);
+		}
+	}
+
+	/*
+	 * @brief creates a solver for all positions of a game starting at the given stacks.
+	 * @param FifteenStack stack, the stacks at the start of the game.
+	 * @param boolean misere, whether taking the last item loses.
+	 * @return NimSolver, the solver.
+	 */
+	public static NimSolver forStack(FifteenStack stack, boolean misere) {
+		int[] heights = new int[FifteenStack.STACKS];
+		for (int i = 0; i < heights.length; i++) {
+			heights[i] = stack.look(i + 1);
+		}
+		return new NimSolver(heights, misere);
+	}
+
+	/*
+	 * @brief creates a solver for all positions of a game starting at the given stacks.
+	 * @param MultiStack stack, the stacks at the start of the game.
+	 * @param boolean misere, whether taking the last item loses.
+	 * @return NimSolver, the solver.
+	 */
+	public static NimSolver forStack(MultiStack stack, boolean misere) {
+		return new NimSolver(stack.getHeights(), misere);
+	}
+
+	/*
+	 * @brief works out the best move of a single position.
+	 * @param int[] position, the heights of the stacks.
+	 * @param int index, the number of the position.
+	 */
+	private void solve(int[] position, int index) {
+		int nimSum = 0;
+		int big = 0;
+		int ones = 0;
+		int largest = -1;
+		for (int i = 0; i < position.length; i++) {
+			nimSum ^= position[i];
+			if (position[i] > 1) {
+				big++;
+			} else if (position[i] == 1) {
+				ones++;
+			}
+			if (position[i] > 0 && (largest < 0 || position[i] > position[largest])) {
+				largest = i;
+			}
+		}
+		if (largest < 0) {
+			// Game is over, there is no move
+			moves[index] = 0;
+			return;
+		}
+
+		if (misere && big <= 1) {
+			// Only the endgame differs from normal rules, leave an odd amount
+			// of stacks of one for the opponent
+			if (big == 1) {
+				// Take the big stack down to zero or one, whichever leaves an odd amount
+				int keep = ones % 2 == 1 ? 0 : 1;
+				win(index, largest, position[largest] - keep);
+			} else if (ones % 2 == 0) {
+				win(index, largest, 1);
+			} else {
+				lose(index, largest);
+			}
+			return;
+		}
+
+		if (nimSum == 0) {
+			lose(index, largest);
+			return;
+		}
+		// Take a stack down so the nim-sum becomes zero
+		for (int i = 0; i < position.length; i++) {
+			int target = position[i] ^ nimSum;
+			if (target < position[i]) {
+				win(index, i, position[i] - target);
+				return;
+			}
+		}
+	}
+
+	/*
+	 * @brief stores a winning move.
+	 * @param int index, the number of the position.
+	 * @param int stack, index of the stack to take from.
+	 * @param int amount, the amount to take.
+	 */
+	private void win(int index, int stack, int amount) {
+		moves[index] = encode(stack + 1, amount);
+		winning[index] = true;
+	}
+
+	/*
+	 * @brief stores the move of a lost position, taking one from the largest
+	 * stack so the game lasts as long as possible.
+	 * @param int index, the number of the position.
+	 * @param int stack, index of the largest stack.
+	 */
+	private void lose(int index, int stack) {
+		moves[index] = encode(stack + 1, 1);
+		winning[index] = false;
+	}
+
+	/*
+	 * @brief encodes a move into an int.
+	 * @param int stack, the stack to take from, starting at 1 like FifteenStack.
+	 * @param int amount, the amount to take.
+	 * @return int, the move.
+	 */
+	public static int encode(int stack, int amount) {
+		return (stack << 16) | amount;
+	}
+
+	/*
+	 * @brief returns the stack of a move.
+	 * @param int move, the move.
+	 * @return int, the stack starting at 1, 0 if there is no move.
+	 */
+	public static int getStack(int move) {
+		return move >>> 16;
+	}
+
+	/*
+	 * @brief returns the amount of a move.
+	 * @param int move, the move.
+	 * @return int, the amount to take.
+	 */
+	public static int getAmount(int move) {
+		return move & 0xFFFF;
+	}
+
+	/*
+	 * @brief returns the number of the position with the given heights.
+	 * @param int[] position, the heights of the stacks.
+	 * @return int, the number of the position.
+	 */
+	public int indexOf(int[] position) {
+		if (position.length != heights.length) {
+			throw new IllegalArgumentException("Expected " + heights.length + " stacks, got " + position.length);
+		}
+		int index = 0;
+		for (int i = 0; i < position.length; i++) {
+			index += digit(i, position[i]);
+		}
+		return index;
+	}
+
+	/*
+	 * @brief returns the number of the position of the given stacks.
+	 * @param FifteenStack stack, the stacks.
+	 * @return int, the number of the position.
+	 */
+	public int indexOf(FifteenStack stack) {
+		if (heights.length != FifteenStack.STACKS) {
+			throw new IllegalArgumentException("Expected " + heights.length + " stacks, got " + FifteenStack.STACKS);
+		}
+		return digit(0, stack.look(1)) + digit(1, stack.look(2)) + digit(2, stack.look(3));
+	}
+
+	/*
+	 * @brief returns the number of the position of the given stacks.
+	 * @param MultiStack stack, the stacks.
+	 * @return int, the number of the position.
+	 */
+	public int indexOf(MultiStack stack) {
+		if (heights.length != stack.size()) {
+			throw new IllegalArgumentException("Expected " + heights.length + " stacks, got " + stack.size());
+		}
+		int index = 0;
+		for (int i = 0; i < heights.length; i++) {
+			index += digit(i, stack.look(i + 1));
+		}
+		return index;
+	}
+
+	/*
+	 * @brief returns the part of the number of a position given by a single stack.
+	 * @param int stack, index of the stack.
+	 * @param int height, the height of the stack.
+	 * @return int, the height times the radix of the stack.
+	 */
+	private int digit(int stack, int height) {
+		if (height < 0 || height > heights[stack]) {
+			throw new IllegalArgumentException("Stack " + (stack + 1) + " must be 0-" + heights[stack] + ", got " + height);
+		}
+		return height * radix[stack];
+	}
+
+	/*
+	 * @brief returns the best move of the given position.
+	 * @param int index, the number of the position.
+	 * @return int, the move, see getStack and getAmount, 0 if the game is over.
+	 */
+	public int getMove(int index) {
+		return moves[index];
+	}
+
+	/*
+	 * @brief returns the best move for the given stacks.
+	 * @param FifteenStack stack, the stacks.
+	 * @return int, the move, see getStack and getAmount, 0 if the game is over.
+	 */
+	public int getMove(FifteenStack stack) {
+		return moves[indexOf(stack)];
+	}
+
+	/*
+	 * @brief returns the best move for the given stacks.
+	 * @param MultiStack stack, the stacks.
+	 * @return int, the move, see getStack and getAmount, 0 if the game is over.
+	 */
+	public int getMove(MultiStack stack) {
+		return moves[indexOf(stack)];
+	}
+
+	/*
+	 * @brief checks if the player to move wins the given position with perfect play.
+	 * @param int index, the number of the position.
+	 * @return boolean, whether the position is won.
+	 */
+	public boolean isWinning(int index) {
+		return winning[index];
+	}
+
+	/*
+	 * @brief checks whether taking the last item loses.
+	 * @return boolean, whether this solver plays misere.
+	 */
+	public boolean isMisere() {
+		return misere;
+	}
+}
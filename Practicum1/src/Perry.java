@@ -1,12 +1,12 @@
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 
 import jade.core.AID;
 import jade.core.Agent;
 import jade.core.behaviours.CyclicBehaviour;
 import jade.core.behaviours.OneShotBehaviour;
-import jade.core.behaviours.TickerBehaviour;
 import jade.lang.acl.ACLMessage;
 
 public class Perry extends Agent {
@@ -20,13 +20,33 @@ public class Perry extends Agent {
 	public static final int META_STATE_PROPOSAL_SENT = 1;
 	public static final int META_STATE_IN_GAME = 2;
 
+	public static final int EVENT_GAME = 0x100;
+
+	// Time to wait for an answer to a proposal or the next move of a game
+	public static final long PROPOSAL_TIMEOUT = 2000;
+	public static final long GAME_TIMEOUT = 5000;
+	// Back-off after a refused or unanswered proposal, doubled after every failure
+	public static final long BACKOFF = 50;
+	public static final long MAX_BACKOFF = 5000;
+
+	// Whoever empties the stacks congratulates the opponent, so taking the last item loses
+	private static final NimSolver SOLVER = NimSolver.forStack(new FifteenStack(), true);
+
 	private int metaState = META_STATE_FREE;
 	private AID proposingTo = null;
+	private AID opponent = null;
+	private int failures = 0;
+	private long deadline = Long.MAX_VALUE;
+	private final Random random = new Random();
 
 	private List<AID> agentIds;
 
 	private FifteenStack stack;
 
+	private EventJournal.Writer journal;
+	private int journalId;
+	private int gamesPlayed = 0;
+
 	/*
 	 * @brief initializes the agent id given through arguments.
 	 */
@@ -70,43 +90,87 @@ public class Perry extends Agent {
 	}
 
 	/*
-	 * @brief agent sends a propose message to another agent.
+	 * @brief agent sends a propose message to another agent and waits at most PROPOSAL_TIMEOUT for the answer.
 	 */
 	private void sendProposal() {
-		try {
-			Thread.sleep((int) (Math.random() * 1000));
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
 		if (agentIds.size() == 0) {
 			System.err.println("No agents");
+			deadline = Long.MAX_VALUE;
 			return;
 		}
-		int i = (int) Math.floor(Math.random() * agentIds.size());
+		int i = random.nextInt(agentIds.size());
 		proposingTo = agentIds.get(i);
 		changeState(META_STATE_PROPOSAL_SENT);
+		deadline = System.currentTimeMillis() + PROPOSAL_TIMEOUT;
 		sendTo(proposingTo, META, ACLMessage.PROPOSE);
 	}
 
+	/*
+	 * @brief agent gives up on the proposal or game and proposes again after backing off.
+	 */
+	private void backOff() {
+		failures++;
+		changeState(META_STATE_FREE);
+		proposingTo = null;
+		opponent = null;
+		// Random half to full back-off, so agents that failed together don't retry together
+		long backoff = Math.min(MAX_BACKOFF, BACKOFF << Math.min(failures, 16));
+		deadline = System.currentTimeMillis() + backoff / 2 + (long) (random.nextDouble() * backoff / 2);
+	}
+
+	/*
+	 * @brief agent is free again after a game and proposes right away.
+	 */
+	private void finishGame() {
+		gamesPlayed++;
+		failures = 0;
+		changeState(META_STATE_FREE);
+		opponent = null;
+		deadline = System.currentTimeMillis();
+	}
+
+	/*
+	 * @brief agent joins a game against the given agent, which makes the first move.
+	 * @param AID aid, the opponent.
+	 */
+	private void joinGame(AID aid) {
+		opponent = aid;
+		proposingTo = null;
+		changeState(META_STATE_IN_GAME);
+		deadline = System.currentTimeMillis() + GAME_TIMEOUT;
+	}
+
+	/*
+	 * @brief handles a deadline that passed without a message.
+	 */
+	private void handleDeadline() {
+		switch (metaState) {
+		case META_STATE_FREE:
+			sendProposal();
+			break;
+		default:
+			// No answer to the proposal or the opponent stopped moving
+			backOff();
+			break;
+		}
+	}
+
 	/*
 	 * @brief agent creates a new game and makes a move.
 	 */
 	private void startGame() {
 		stack = new FifteenStack();
 		changeState(META_STATE_IN_GAME);
+		deadline = System.currentTimeMillis() + GAME_TIMEOUT;
 		makeAMove();
 	}
 
 	/*
-	 * @brief agent makes a move by randomly choosing a stack and an amount.
+	 * @brief agent makes the best move, looked up in the solver.
 	 */
 	private void makeAMove() {
-		int s = (int) (Math.random() * 3) + 1;
-		while (stack.look(s) <= 0) {
-			s = (int) (Math.random() * 3) + 1;
-		}
-		int amount = (int) (Math.random() * (stack.look(s) - 1)) + 1;
-		stack.take(s, amount);
+		int move = SOLVER.getMove(stack);
+		stack.take(NimSolver.getStack(move), NimSolver.getAmount(move));
 	}
 
 	/*
@@ -115,20 +179,18 @@ public class Perry extends Agent {
 	 */
 	private void handleGame(ACLMessage message) {
 		AID replyTo = message.getSender();
-		stack = FifteenStack.fromString(message.getContent());
-		makeAMove();
-		try {
-			Thread.sleep(500);
-		} catch (InterruptedException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+		if (metaState != META_STATE_IN_GAME || !replyTo.equals(opponent)) {
+			// Move of a game that was cancelled or timed out
+			return;
 		}
+		stack = FifteenStack.fromBytes(message.getByteSequenceContent());
+		makeAMove();
 		if (stack.gameOver()) {
 			sendTo(replyTo, META, ACLMessage.INFORM, CONGRATULATIONS);
-			System.out.println();
-			changeState(META_STATE_FREE);
+			finishGame();
 		} else {
-			sendTo(replyTo, GAME, ACLMessage.INFORM, stack.toString());
+			deadline = System.currentTimeMillis() + GAME_TIMEOUT;
+			sendTo(replyTo, GAME, ACLMessage.INFORM, stack.toBytes());
 		}
 	}
 
@@ -140,27 +202,46 @@ public class Perry extends Agent {
 		AID replyTo = message.getSender();
 		switch (message.getPerformative()) {
 		case ACLMessage.INFORM:
-			if (message.getContent().equals(CONGRATULATIONS)) {
-				changeState(META_STATE_FREE);
+			if (message.getContent().equals(CONGRATULATIONS) && metaState == META_STATE_IN_GAME
+					&& replyTo.equals(opponent)) {
+				finishGame();
 			}
 			break;
 		case ACLMessage.PROPOSE:
 			if (metaState == META_STATE_FREE) {
-				changeState(META_STATE_IN_GAME);
+				joinGame(replyTo);
 				sendTo(replyTo, META, ACLMessage.ACCEPT_PROPOSAL);
+			} else if (metaState == META_STATE_PROPOSAL_SENT && replyTo.equals(proposingTo)) {
+				// Both proposed to each other, the lowest AID accepts and the other
+				// waits for that ACCEPT_PROPOSAL instead of an answer to its own
+				if (getAID().compareTo(replyTo) < 0) {
+					joinGame(replyTo);
+					sendTo(replyTo, META, ACLMessage.ACCEPT_PROPOSAL);
+				}
 			} else {
 				sendTo(replyTo, META, ACLMessage.REFUSE);
 			}
 			break;
 		case ACLMessage.REFUSE:
-			if (metaState != META_STATE_IN_GAME) {
-				changeState(META_STATE_FREE);
+			if (metaState == META_STATE_PROPOSAL_SENT && replyTo.equals(proposingTo)) {
+				backOff();
 			}
 			break;
 		case ACLMessage.ACCEPT_PROPOSAL:
 			if (metaState != META_STATE_IN_GAME) {
+				// Also a late answer to a proposal that timed out, the other agent is waiting for us
+				opponent = replyTo;
+				proposingTo = null;
 				startGame();
-				sendTo(replyTo, GAME, ACLMessage.INFORM, stack.toString());
+				sendTo(replyTo, GAME, ACLMessage.INFORM, stack.toBytes());
+			} else if (!replyTo.equals(opponent)) {
+				// Already playing, so let the other agent know the game is off
+				sendTo(replyTo, META, ACLMessage.CANCEL);
+			}
+			break;
+		case ACLMessage.CANCEL:
+			if (metaState == META_STATE_IN_GAME && replyTo.equals(opponent)) {
+				backOff();
 			}
 			break;
 		}
@@ -197,73 +278,80 @@ public class Perry extends Agent {
 	}
 
 	/*
-	 * @brief logs the messages, used for debug.
-	 * @param ACLMessage message, the received message.
+	 * @brief agent send a message to another agent.
+	 * @param AID to, receiver of the message.
+	 * @param String language, type of message (meta/game).
+	 * @param int performative, type of performative.
+	 * @param byte[] content, binary content of the message.
+	 */
+	private void sendTo(AID to, String language, int performative, byte[] content) {
+		ACLMessage reply = new ACLMessage(performative);
+		reply.setLanguage(language);
+		reply.addReceiver(to);
+		reply.setByteSequenceContent(content);
+		logMessage(reply);
+		send(reply);
+	}
+
+	/*
+	 * @brief logs the message to the event journal, one event for every receiver.
+	 * @param ACLMessage message, the sent message.
 	 */
 	private void logMessage(ACLMessage message) {
-		String from = this.getAID().getLocalName();
-		String to = "";
+		int event = message.getPerformative();
+		int move = -1;
+		if (GAME.equals(message.getLanguage())) {
+			event |= EVENT_GAME;
+			move = stack.getPacked();
+		}
 		for (Iterator<AID> i = message.getAllReceiver(); i.hasNext();) {
 			AID aid = i.next();
-			to += aid.getLocalName();
-		}
-		String performative = "";
-		switch (message.getPerformative()) {
-
-		case ACLMessage.INFORM:
-			performative = "INFORM";
-			break;
-		case ACLMessage.PROPOSE:
-			performative = "PROPOSE";
-			break;
-		case ACLMessage.REFUSE:
-			performative = "REFUSE";
-			break;
-		case ACLMessage.ACCEPT_PROPOSAL:
-			performative = "ACCEPT_PROPOSAL";
-			break;
-		}
-		String content = message.getContent();
-		if (content == null) {
-			content = "";
+			journal.record(journalId, EventJournal.getInstance().getId(aid.getLocalName()), event, move, gamesPlayed);
 		}
-		System.out.printf("SND %8s > %8s: %s %10s %s\n", from, to, message.getLanguage(), performative, content);
 	}
 
 	protected void setup() {
+		journal = EventJournal.getInstance().createWriter();
+		journalId = EventJournal.getInstance().getId(getLocalName());
+
 		addBehaviour(new OneShotBehaviour() {
 			@Override
 			public void action() {
 				initAids();
 				informAll();
-				sendProposal();
+				// Propose after a random part of the back-off, so not all agents propose at once
+				deadline = System.currentTimeMillis() + (long) (random.nextDouble() * BACKOFF);
 			}
 		});
 
+		// Wakes up for every message and for the deadline of the current state only
 		addBehaviour(new CyclicBehaviour() {
 			public void action() {
 				ACLMessage message = receive();
 				if (message != null) {
-					if (message.getLanguage().equals("meta")) {
+					if (META.equals(message.getLanguage())) {
 						handleMeta(message);
-					} else if (message.getLanguage().equals("game")) {
+					} else if (GAME.equals(message.getLanguage())) {
 						handleGame(message);
 					}
+					return;
 				}
-				if (metaState == META_STATE_PROPOSAL_SENT && Math.random() > 0.5) {
-					sendTo(proposingTo, META, ACLMessage.PROPOSE);
+				long now = System.currentTimeMillis();
+				if (now >= deadline) {
+					handleDeadline();
+				} else if (deadline == Long.MAX_VALUE) {
+					block();
+				} else {
+					block(deadline - now);
 				}
-				block(1000);
 			}
 		});
+	}
 
-		addBehaviour(new TickerBehaviour(this, 1000) {
-			@Override
-			protected void onTick() {
-				if (metaState == META_STATE_FREE) {
-					sendProposal();
-				}
-			}
-		});
+	/*
+	 * @brief closes the journal writer when the agent is taken down.
+	 */
+	protected void takeDown() {
+		journal.close();
 	}
 }
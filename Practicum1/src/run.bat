@@ -1,2 +1,2 @@
-javac Perry.java FifteenStack.java
+javac Perry.java FifteenStack.java NimSolver.java MultiStack.java GameSearch.java EventJournal.java
 java jade.Boot -gui -agents Phineas:Perry(Ferb);Ferb:Perry(Phineas)
\ No newline at end of file
@@ -6,9 +6,10 @@ import jade.core.behaviours.Behaviour;
 
 /**
  * Base Agent to make the setup a bit easier for new agents within this 
- * project. Will register SLCodec and the GameOntology after which it will 
- * add a Behaviour defined by the {@link #onSetup()} method extending class 
- * will define.
+ * project. Will register the {@link BinaryCodec}, SLCodec and the GameOntology 
+ * after which it will add a Behaviour defined by the {@link #onSetup()} method 
+ * extending class will define. Messages are sent in the BinaryCodec language, 
+ * SLCodec is still registered so messages sent in SL can be read as well.
  * 
  * @author Mathijs van Bremen
  */
@@ -16,7 +17,12 @@ public abstract class BaseAgent extends Agent {
 	/**
 	 * Language we will be talking in.
 	 */
-	private final Codec codec = new SLCodec();
+	private final Codec codec = new BinaryCodec();
+	/**
+	 * Language we can still understand, used by agents that don't 
+	 * talk in the {@link BinaryCodec} language.
+	 */
+	private final Codec slCodec = new SLCodec();
 	/**
 	 * Ontology we will be using. 
 	 */
@@ -28,6 +34,7 @@ public abstract class BaseAgent extends Agent {
 	protected void setup() {
 		// Register the language and ontology
 		getContentManager().registerLanguage(codec);
+		getContentManager().registerLanguage(slCodec);
 		getContentManager().registerOntology(ontology);
 		// Add the Behaviour for this Agent
 		addBehaviour(getBehaviour());
@@ -49,7 +56,7 @@ public abstract class BaseAgent extends Agent {
 	protected abstract Behaviour getBehaviour();
 	
 	/**
-	 * Will return the {@link Codec} used by this Agent.
+	 * Will return the {@link Codec} used by this Agent to send messages.
 	 * 
 	 * @return the {@link Codec} used
 	 */
@@ -0,0 +1,208 @@
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the {@link BidStrategy}s players can use, by name. The
+ * strategies shipped with this project are registered on first use, others
+ * can be added with {@link #register(String, BidStrategy.Factory)} before
+ * the players are started.
+ *
+ * Two strategies can also be played against each other without JADE to
+ * see whether and where they converge (all arguments are optional):
+ * <pre>
+ * java BidStrategies [name] [opponent's name] [games] [seed]
+ * </pre>
+ *
+ * @author Mathijs van Bremen
+ * @see BidStrategy, Strategy
+ */
+public final class BidStrategies {
+	/**
+	 * Name of the {@link RandomBidStrategy}
+	 */
+	public static final String RANDOM = "random";
+	/**
+	 * Name of the {@link FictitiousPlayBidStrategy}
+	 */
+	public static final String FICTITIOUS_PLAY = "fictitious-play";
+	/**
+	 * Name of the {@link MultiplicativeWeightsBidStrategy}
+	 */
+	public static final String MULTIPLICATIVE_WEIGHTS = "multiplicative-weights";
+	/**
+	 * Name of the {@link QLearningBidStrategy}
+	 */
+	public static final String Q_LEARNING = "q-learning";
+
+	/**
+	 * {@link ConcurrentMap} containing the name of a BidStrategy and the
+	 * factory creating it, players are set up concurrently
+	 */
+	private static final ConcurrentMap<String, BidStrategy.Factory> FACTORIES = new ConcurrentHashMap<>();
+
+	static {
+		register(RANDOM, new BidStrategy.Factory() {
+			@Override
+			public BidStrategy create() {
+				return new RandomBidStrategy();
+			}
+		});
+		register(FICTITIOUS_PLAY, new BidStrategy.Factory() {
+			@Override
+			public BidStrategy create() {
+				return new FictitiousPlayBidStrategy();
+			}
+		});
+		register(MULTIPLICATIVE_WEIGHTS, new BidStrategy.Factory() {
+			@Override
+			public BidStrategy create() {
+				return new MultiplicativeWeightsBidStrategy();
+			}
+		});
+		register(Q_LEARNING, new BidStrategy.Factory() {
+			@Override
+			public BidStrategy create() {
+				return new QLearningBidStrategy();
+			}
+		});
+	}
+
+	/**
+	 * Private constructor as this class only has static methods.
+	 */
+	private BidStrategies() {
+	}
+
+	/**
+	 * Will register the given factory by the given name, replacing the
+	 * factory registered by that name before.
+	 *
+	 * @param name the name players will refer to the BidStrategy by
+	 * @param factory the factory creating the BidStrategy
+	 */
+	public static void register(String name, BidStrategy.Factory factory) {
+		FACTORIES.put(name, factory);
+	}
+
+	/**
+	 * Returns a new BidStrategy for the given name.
+	 *
+	 * @param name the name the BidStrategy is registered by
+	 * @return the BidStrategy
+	 * @throws IllegalArgumentException if no BidStrategy is registered by the name
+	 */
+	public static BidStrategy create(String name) {
+		final BidStrategy.Factory factory = FACTORIES.get(name);
+		if (factory == null) {
+			throw new IllegalArgumentException("Unknown bid strategy " + name + ", expected one of " + getNames());
+		}
+
+		return factory.create();
+	}
+
+	/**
+	 * Returns the probability of every offer the BidStrategy with the given
+	 * name makes.
+	 *
+	 * @param name the name the BidStrategy is registered by
+	 * @return the probabilities, indexed by offer - {@link Strategy#MIN_OFFER}
+	 * @throws IllegalArgumentException if no BidStrategy is registered by the name
+	 * @throws UnsupportedOperationException if the offers depend on the
+	 * games played before
+	 */
+	public static double[] getOfferProbabilities(String name) {
+		final double[] probabilities = create(name).getOfferProbabilities();
+		if (probabilities == null) {
+			// Learning strategies don't have a fixed distribution
+			throw new UnsupportedOperationException(name + " learns from its games");
+		}
+
+		return probabilities;
+	}
+
+	/**
+	 * Returns the names of all registered BidStrategies.
+	 *
+	 * @return the names, sorted
+	 */
+	public static Set<String> getNames() {
+		return new TreeSet<>(FACTORIES.keySet());
+	}
+
+	/**
+	 * Returns the utility the given offer gets against the given offer of
+	 * the opponent on average, ties being won half of the time.
+	 *
+	 * @param offer our offer
+	 * @param opponentOffer the offer of the opponent
+	 * @return the expected utility
+	 */
+	static double getExpectedUtility(int offer, int opponentOffer) {
+		if (offer < opponentOffer) {
+			return offer;
+		}
+
+		return offer == opponentOffer ? offer / 2.0 : 0;
+	}
+
+	/**
+	 * Will play the given amount of games between the given BidStrategies,
+	 * following the same rules as the {@link Strategy}.
+	 *
+	 * @param bidStrategy the first BidStrategy
+	 * @param opponent the second BidStrategy
+	 * @param games the amount of games to play
+	 * @param random the Random class to use for the offers and ties
+	 * @return the total utility of both BidStrategies followed by how many
+	 * times both made every offer, indexed by offer - {@link Strategy#MIN_OFFER}
+	 */
+	public static long[] play(BidStrategy bidStrategy, BidStrategy opponent, long games, Random random) {
+		final long[] totals = new long[2 + 2 * Strategy.OFFER_COUNT];
+		for (long game = 0; game < games; game++) {
+			final int offer = bidStrategy.getOffer(random);
+			final int opponentOffer = opponent.getOffer(random);
+			// Lowest offer wins, equal offers are decided by a coin flip
+			final boolean win = offer < opponentOffer || (offer == opponentOffer && random.nextBoolean());
+			final int utility = win ? offer : 0;
+			final int opponentUtility = win ? 0 : opponentOffer;
+			bidStrategy.update(offer, opponentOffer, utility);
+			opponent.update(opponentOffer, offer, opponentUtility);
+
+			totals[0] += utility;
+			totals[1] += opponentUtility;
+			totals[2 + offer - Strategy.MIN_OFFER]++;
+			totals[2 + Strategy.OFFER_COUNT + opponentOffer - Strategy.MIN_OFFER]++;
+		}
+
+		return totals;
+	}
+
+	/**
+	 * Will play two BidStrategies against each other and print their average
+	 * utility and how often they made every offer.
+	 *
+	 * @param args optional names of both BidStrategies, amount of games and seed
+	 */
+	public static void main(String[] args) {
+		final String name = args.length > 0 ? args[0] : FICTITIOUS_PLAY;
+		final String opponentName = args.length > 1 ? args[1] : Q_LEARNING;
+		final long games = args.length > 2 ? Long.parseLong(args[2]) : 1000000L;
+		final long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+
+		final long[] totals = play(create(name), create(opponentName), games, new Random(seed));
+
+		final String[] names = { name, opponentName };
+		for (int player = 0; player < 2; player++) {
+			final StringBuilder builder = new StringBuilder();
+			builder.append(names[player]).append(" | ").append(String.format("%.4f", (double) totals[player] / games))
+					.append(" |");
+			for (int i = 0; i < Strategy.OFFER_COUNT; i++) {
+				builder.append(' ').append(totals[2 + player * Strategy.OFFER_COUNT + i]);
+			}
+			System.out.println(builder);
+		}
+	}
+}
@@ -0,0 +1,59 @@
+import java.util.Random;
+
+/**
+ * Decides on the offers of a player. A BidStrategy is created for every
+ * {@link PlayerAgent} by the name it is registered with in the
+ * {@link BidStrategies}, so new ways of bidding can be added without
+ * touching the {@link Strategy} handling the messages.
+ *
+ * After every game the BidStrategy is told what happened, so it can learn
+ * from the offers of its opponent. Implementations are called for millions
+ * of games, so they should keep their statistics in fixed-size arrays and
+ * not allocate anything per game. A BidStrategy is only used by a single
+ * player and doesn't need to be thread-safe.
+ *
+ * @author Mathijs van Bremen
+ * @see BidStrategies, Strategy
+ */
+public interface BidStrategy {
+	/**
+	 * Returns the offer for the next game, between {@link Strategy#MIN_OFFER}
+	 * and {@link Strategy#MAX_OFFER}.
+	 *
+	 * @param random Random class of the player
+	 * @return the offer
+	 */
+	int getOffer(Random random);
+
+	/**
+	 * Will be called when a game is over.
+	 *
+	 * @param offer the offer we made
+	 * @param opponentOffer the offer the opponent made
+	 * @param utility the utility we got, 0 if we lost
+	 */
+	void update(int offer, int opponentOffer, int utility);
+
+	/**
+	 * Returns the probability of every offer this BidStrategy makes, if
+	 * they don't depend on the games played before.
+	 *
+	 * @return the probabilities, indexed by offer - {@link Strategy#MIN_OFFER},
+	 * or null if this BidStrategy learns from its games
+	 */
+	default double[] getOfferProbabilities() {
+		return null;
+	}
+
+	/**
+	 * Creates a new BidStrategy for every player that uses it.
+	 */
+	interface Factory {
+		/**
+		 * Returns a new BidStrategy without any history.
+		 *
+		 * @return the BidStrategy
+		 */
+		BidStrategy create();
+	}
+}
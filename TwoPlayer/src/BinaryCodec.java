@@ -0,0 +1,294 @@
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import jade.content.abs.AbsAgentAction;
+import jade.content.abs.AbsConcept;
+import jade.content.abs.AbsContentElement;
+import jade.content.abs.AbsHelper;
+import jade.content.abs.AbsObject;
+import jade.content.lang.ByteArrayCodec;
+import jade.content.onto.BasicOntology;
+import jade.content.onto.Ontology;
+import jade.core.AID;
+
+/**
+ * Compact binary language for the actions of the {@link GameOntology}. Instead
+ * of an SL string like ((action (agent-identifier ...) (Offer :Offer 3))) an 
+ * action is encoded as a single tag byte, followed by the name of the actor and 
+ * the slots of the action, so encoding and decoding don't need any parsing.
+ *
+ * Layout of an encoded action:
+ * <pre>
+ * tag (1 byte) | actor name | slots of the action
+ * </pre>
+ * Integers are encoded as zigzag varints, so small values take a single byte. 
+ * Strings are encoded as a varint length followed by the UTF-8 bytes.
+ *
+ * @author Mathijs van Bremen
+ * @see BaseAgent
+ */
+public class BinaryCodec extends ByteArrayCodec implements GameVocabulary {
+	/**
+	 * Name of this language, set as language of the messages
+	 */
+	public static final String NAME = "Game-binary";
+	/**
+	 * Tag of the {@link OfferAction}
+	 */
+	private static final byte TAG_OFFER = 1;
+	/**
+	 * Tag of the {@link ResponseAction}
+	 */
+	private static final byte TAG_RESPONSE = 2;
+	/**
+	 * Tag of the {@link StartAction}
+	 */
+	private static final byte TAG_START = 3;
+
+	/**
+	 * Public constructor that will set the name of this language
+	 */
+	public BinaryCodec() {
+		super(NAME);
+	}
+
+	/**
+	 * Will encode the given content element. Only actions of the
+	 * {@link GameOntology} are supported.
+	 *
+	 * @param content the content element to encode
+	 * @return the encoded content element
+	 * @throws CodecException if the content element is not supported
+	 */
+	@Override
+	public byte[] encode(AbsContentElement content) throws CodecException {
+		// Check if this is an action with an actor
+		if (!BasicOntology.ACTION.equals(content.getTypeName())) {
+			throw new CodecException("Unsupported content " + content.getTypeName());
+		}
+		final AbsConcept actor = (AbsConcept) content.getAbsObject(BasicOntology.ACTION_ACTOR);
+		final AbsObject action = content.getAbsObject(BasicOntology.ACTION_ACTION);
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+		// Write the tag of the action followed by the actor
+		final String type = action.getTypeName();
+		if (OFFER.equals(type)) {
+			out.write(TAG_OFFER);
+		} else if (RESPONSE.equals(type)) {
+			out.write(TAG_RESPONSE);
+		} else if (START.equals(type)) {
+			out.write(TAG_START);
+		} else {
+			throw new CodecException("Unsupported action " + type);
+		}
+		writeString(out, actor.getString(BasicOntology.AID_NAME));
+
+		// Write the slots of the action
+		final AbsConcept slots = (AbsConcept) action;
+		if (OFFER.equals(type)) {
+			writeSignedVarint(out, slots.getInteger(OFFER_FIELD));
+		} else if (RESPONSE.equals(type)) {
+			writeSignedVarint(out, slots.getInteger(UTILITY_FIELD));
+			writeSignedVarint(out, slots.getInteger(RESPONSE_OFFER_FIELD));
+		} else {
+			writeString(out, slots.getString(OPPONENT_NAME));
+		}
+
+		return out.toByteArray();
+	}
+
+	/**
+	 * Will encode the given content element. The ontology isn't needed as
+	 * the actions this language supports are fixed.
+	 *
+	 * @param ontology the ontology of the content element
+	 * @param content the content element to encode
+	 * @return the encoded content element
+	 * @throws CodecException if the content element is not supported
+	 */
+	@Override
+	public byte[] encode(Ontology ontology, AbsContentElement content) throws CodecException {
+		return encode(content);
+	}
+
+	/**
+	 * Will decode the given bytes into a content element.
+	 *
+	 * @param content the encoded content element
+	 * @return the decoded content element
+	 * @throws CodecException if the content could not be decoded
+	 */
+	@Override
+	public AbsContentElement decode(byte[] content) throws CodecException {
+		final Reader in = new Reader(content);
+		// Read the tag of the action followed by the actor
+		final byte tag = in.readByte();
+		final String actorName = in.readString();
+
+		// Create the action depending on the tag
+		final AbsAgentAction action;
+		switch (tag) {
+			case TAG_OFFER:
+				action = new AbsAgentAction(OFFER);
+				action.set(OFFER_FIELD, in.readSignedVarint());
+				break;
+
+			case TAG_RESPONSE:
+				action = new AbsAgentAction(RESPONSE);
+				action.set(UTILITY_FIELD, in.readSignedVarint());
+				action.set(RESPONSE_OFFER_FIELD, in.readSignedVarint());
+				break;
+
+			case TAG_START:
+				action = new AbsAgentAction(START);
+				action.set(OPPONENT_NAME, in.readString());
+				break;
+
+			default:
+				throw new CodecException("Unknown tag " + tag);
+		}
+
+		// Wrap the action together with its actor
+		final AbsAgentAction element = new AbsAgentAction(BasicOntology.ACTION);
+		element.set(BasicOntology.ACTION_ACTOR, AbsHelper.externaliseAID(new AID(actorName, AID.ISGUID)));
+		element.set(BasicOntology.ACTION_ACTION, action);
+
+		return element;
+	}
+
+	/**
+	 * Will decode the given bytes into a content element. The ontology isn't
+	 * needed as the actions this language supports are fixed.
+	 *
+	 * @param ontology the ontology of the content element
+	 * @param content the encoded content element
+	 * @return the decoded content element
+	 * @throws CodecException if the content could not be decoded
+	 */
+	@Override
+	public AbsContentElement decode(Ontology ontology, byte[] content) throws CodecException {
+		return decode(content);
+	}
+
+	/**
+	 * Will write the given String as a varint length followed by its UTF-8 bytes.
+	 *
+	 * @param out the stream to write to
+	 * @param value the String to write
+	 */
+	private static void writeString(ByteArrayOutputStream out, String value) {
+		final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarint(out, bytes.length);
+		out.write(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Will write the given non-negative int in as few bytes as possible, seven
+	 * bits per byte with the highest bit set if more bytes follow.
+	 *
+	 * @param out the stream to write to
+	 * @param value the value to write
+	 */
+	private static void writeVarint(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	/**
+	 * Will write the given int as a zigzag varint, mapping small negative 
+	 * values to small positive ones so they take few bytes as well.
+	 *
+	 * @param out the stream to write to
+	 * @param value the value to write
+	 */
+	private static void writeSignedVarint(ByteArrayOutputStream out, int value) {
+		writeVarint(out, (value << 1) ^ (value >> 31));
+	}
+
+	/**
+	 * Reads the values written by the {@link BinaryCodec} from a byte array.
+	 */
+	private static class Reader {
+		/**
+		 * The bytes to read from
+		 */
+		private final byte[] bytes;
+		/**
+		 * The position of the next byte to read
+		 */
+		private int position = 0;
+
+		/**
+		 * Constructor that will simply set given parameters
+		 *
+		 * @param bytes the bytes to read from
+		 */
+		private Reader(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		/**
+		 * Returns the next byte.
+		 *
+		 * @return the next byte
+		 * @throws CodecException if there are no bytes left
+		 */
+		private byte readByte() throws CodecException {
+			if (position >= bytes.length) {
+				throw new CodecException("Unexpected end of content");
+			}
+
+			return bytes[position++];
+		}
+
+		/**
+		 * Returns the next varint.
+		 *
+		 * @return the next varint
+		 * @throws CodecException if there are no bytes left
+		 */
+		private int readVarint() throws CodecException {
+			int value = 0;
+			for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+				final byte b = readByte();
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+
+			throw new CodecException("Malformed varint");
+		}
+
+		/**
+		 * Returns the next zigzag varint.
+		 *
+		 * @return the next zigzag varint
+		 * @throws CodecException if there are no bytes left
+		 */
+		private int readSignedVarint() throws CodecException {
+			final int value = readVarint();
+			return (value >>> 1) ^ -(value & 1);
+		}
+
+		/**
+		 * Returns the next String.
+		 *
+		 * @return the next String
+		 * @throws CodecException if there are not enough bytes left
+		 */
+		private String readString() throws CodecException {
+			final int length = readVarint();
+			if (length < 0 || length > bytes.length - position) {
+				throw new CodecException("Unexpected end of content");
+			}
+			final String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+			position += length;
+
+			return value;
+		}
+	}
+}
@@ -1,11 +1,15 @@
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import jade.content.onto.basic.Action;
 import jade.core.AID;
 import jade.core.behaviours.Behaviour;
-import jade.core.behaviours.OneShotBehaviour;
+import jade.core.behaviours.CyclicBehaviour;
+import jade.core.behaviours.WakerBehaviour;
 import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
 import jade.wrapper.AgentContainer;
 import jade.wrapper.AgentController;
 import jade.wrapper.StaleProxyException;
@@ -56,83 +60,182 @@ public class ControllerAgent extends BaseAgent {
 	 * (as every round will have two games: A->B and B->A).
 	 */
 	private static final int AMOUNT_OF_ROUNDS = 25;
+	/**
+	 * Time in ms after which a game a player refused is started again
+	 */
+	private static final long REFUSED_RETRY_DELAY = 100;
 	/**
 	 * List containing a couple {@link AgentController} objects for each 
 	 * {@link PlayerAgent} objects set up in the {@link #onSetup()} method
 	 */
 	private final List<AgentController> players = new ArrayList<>();
+	/**
+	 * Amount of games started so far, used to give every game a conversation id 
+	 * of its own
+	 */
+	private int gameCount = 0;
 	
 	/**
-	 * Method will add the players to the list.
+	 * Method will add the players to the list. The names of the 
+	 * {@link BidStrategy}s of both players can be passed as arguments, 
+	 * by default both players pick random offers.
 	 */
 	@Override
 	protected void onSetup() {
-		addPlayer("Player1", Strategy.StrategyType.RANDOM);
-		addPlayer("Player2", Strategy.StrategyType.RANDOM);
+		final Object[] args = getArguments();
+		if (args != null && args.length >= 2) {
+			addPlayer("Player1", args[0].toString());
+			addPlayer("Player2", args[1].toString());
+		} else {
+			addPlayer("Player1", BidStrategies.RANDOM);
+			addPlayer("Player2", BidStrategies.RANDOM);
+		}
 	}
 	
 	/**
 	 * Returns a new Behaviour for this ControllerAgent. This will be a 
-	 * OneShotBehaviour that will run the game for us.
+	 * CyclicBehaviour that starts all games of a round at once, both games 
+	 * of every pair of players (A->B and B->A), each in a conversation of 
+	 * its own. The player that initiated a game sends an INFORM once it's 
+	 * finished, and only when all games of the round are finished the 
+	 * {@link Scoreboard} is printed and the next round is started. Players 
+	 * that are too busy refuse the game, which is then started again after 
+	 * {@link #REFUSED_RETRY_DELAY} ms. Between messages the Behaviour blocks, 
+	 * so the agent never waits on a game.
 	 * 
 	 * @return Returns a {@link Behaviour}
-	 * @see OneShotBehaviour
+	 * @see CyclicBehaviour
 	 */
 	@Override
 	protected Behaviour getBehaviour() {
-		return new OneShotBehaviour(this) {
+		return new CyclicBehaviour(this) {
+			/**
+			 * Template matching the INFORMs of the players telling us a game 
+			 * is finished and the refusals of players that are too busy to 
+			 * start a game
+			 */
+			private final MessageTemplate replyTemplate = MessageTemplate.and(
+					MessageTemplate.or(
+							MessageTemplate.MatchPerformative(ACLMessage.INFORM), 
+							MessageTemplate.MatchPerformative(ACLMessage.REFUSE)), 
+					MessageTemplate.MatchOntology(getOntology().getName()));
+			/**
+			 * {@link Map} containing the conversation ids of the games of the 
+			 * current round that are not finished yet and the player initiating 
+			 * the game followed by its opponent
+			 */
+			private final Map<String, AgentController[]> pending = new HashMap<>();
+			/**
+			 * The current round
+			 */
+			private int round = 0;
+			
 			/**
 			 * Called when this Behaviour will be ran.
 			 */
 			@Override
-			public void action() {		
-				// Small delay to make sure all other Agents are running				
-				this.myAgent.doWait(1000);				
-				
-				// Iterate for as long as we have rounds left
-				for (int round = 0; round < AMOUNT_OF_ROUNDS; round++) {
-					// Iterate over all the players
-					for (int index = 0; index < players.size(); index++) {
-						// Get current player
-						final AgentController player = players.get(index);
-						
-						// Iterate over all the players playerA can play against
-						for (int opponentIndex = index+1; opponentIndex < players.size(); opponentIndex++) {
-							// Get the opponent
-							final AgentController opponent = players.get(opponentIndex);
-							// Send the StartAction from the player to the opponent
-							sendStartAction(player, opponent);	
-							
-							// Small delay to fix state out of sync issue 
-							this.myAgent.doWait(50);
-							System.out.println("===================================================");
-							
-							// Now send StartAction from opponent to the player (other way around)
-							sendStartAction(opponent, player);	
-							
-							// Small delay to fix state out of sync issue 
-							this.myAgent.doWait(50);
-							System.out.println("===================================================");
+			public void action() {
+				// Check if we're waiting for games to finish
+				if (!pending.isEmpty()) {
+					// Check if a game finished, if not wait for the next message
+					final ACLMessage msg = myAgent.receive(replyTemplate);
+					if (msg == null) {
+						block();
+						return;
+					}
+					
+					// Check if the player was too busy to start the game
+					final String conversationId = msg.getConversationId();
+					if (msg.getPerformative() == ACLMessage.REFUSE) {
+						if (pending.containsKey(conversationId)) {
+							retry(conversationId);
 						}
-					}					
+						return;
+					}
+					
+					// Check if this was the last game of the round
+					if (pending.remove(conversationId) == null || !pending.isEmpty()) {
+						return;
+					}
+					// All games are finished, so the scoreboard is up to date
+					Scoreboard.getInstance().snapshot().print(System.out);
+					System.out.println("===================================================");
+					round++;
 				}
+				
+				// Check if there are rounds left, if not wait for good
+				if (round >= AMOUNT_OF_ROUNDS || players.size() < 2) {
+					block();
+					return;
+				}
+				
+				// Iterate over all the players
+				for (int index = 0; index < players.size(); index++) {
+					// Get current player
+					final AgentController player = players.get(index);
+					
+					// Iterate over all the players playerA can play against
+					for (int opponentIndex = index+1; opponentIndex < players.size(); opponentIndex++) {
+						// Get the opponent
+						final AgentController opponent = players.get(opponentIndex);
+						// Send the StartAction from the player to the opponent and the 
+						// other way around
+						start(player, opponent);
+						start(opponent, player);
+					}
+				}
+			}
+			
+			/**
+			 * Will start a new game between the given players and add it to 
+			 * the {@link #pending} games.
+			 * 
+			 * @param player the {@link AgentController} initiating the game
+			 * @param opponent the {@link AgentController} player will have a game with
+			 */
+			private void start(AgentController player, AgentController opponent) {
+				// Every game gets its own conversation id
+				final String conversationId = "game-" + (gameCount++);
+				pending.put(conversationId, new AgentController[] { player, opponent });
+				sendStartAction(player, opponent, conversationId);
+			}
+			
+			/**
+			 * Will send the StartAction of the game with the given conversation 
+			 * id again after {@link #REFUSED_RETRY_DELAY} ms, by then the player 
+			 * that refused it has finished some of its games.
+			 * 
+			 * @param conversationId the conversation id of the refused game
+			 */
+			private void retry(final String conversationId) {
+				myAgent.addBehaviour(new WakerBehaviour(myAgent, REFUSED_RETRY_DELAY) {
+					@Override
+					protected void onWake() {
+						final AgentController[] game = pending.get(conversationId);
+						if (game != null) {
+							sendStartAction(game[0], game[1], conversationId);
+						}
+					}
+				});
 			}
 		};
 	}
 	
 	/**
 	 * Will create and start a new {@link PlayerAgent} for given name and 
-	 * {@link Strategy.StrategyType}
+	 * {@link BidStrategy}
 	 * 
 	 * @param name the name of the PlayerAgent
-	 * @param strategyType the strategy type that the PlayerAgent should use
+	 * @param bidStrategyName name of the BidStrategy in the {@link BidStrategies} 
+	 * that the PlayerAgent should use
 	 */
-	private void addPlayer(String name, Strategy.StrategyType strategyType) {
+	private void addPlayer(String name, String bidStrategyName) {
 		// AgentContainer to add agents to
 		final AgentContainer agentContainer = getContainerController();
-		// Object array so we can pass the StrategyType as an argument to the Agent
-		final Object[] args = new Object[1];
-		args[0] = strategyType;
+		// Object array so we can pass the BidStrategy and our AID as arguments to the Agent
+		final Object[] args = new Object[2];
+		args[0] = bidStrategyName;
+		args[1] = getAID();
 		
 		try {
 			// Create a new PlayerAgent, add it to the list and start it
@@ -151,12 +254,15 @@ public class ControllerAgent extends BaseAgent {
 	 * 
 	 * @param sender the {@link AgentController} receiving the {@link StartAction}
 	 * @param receiver the {@link AgentController} that sender will have a game with
+	 * @param conversationId the conversation id of the game
 	 */
-	private void sendStartAction(AgentController sender, AgentController receiver) {
+	private void sendStartAction(AgentController sender, AgentController receiver, String conversationId) {
 		// Create a new ACLMessage with correct ontology and language
 		final ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
 		msg.setOntology(ControllerAgent.this.getOntology().getName());
 		msg.setLanguage(ControllerAgent.this.getCodec().getName());
+		// Every game has its own conversation, so the players can tell them apart
+		msg.setConversationId(conversationId);
 		try {
 			// Add the StartAction to the receiver's AID
 			final AID receiverAID = new AID(sender.getName(), AID.ISGUID);
@@ -0,0 +1,80 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * BidStrategy that assumes the opponent picks its offers from a fixed
+ * distribution: it counts how often the opponent made every offer and
+ * makes the offer with the highest expected utility against those counts.
+ * Offers with the same expected utility are picked at random.
+ *
+ * @author Mathijs van Bremen
+ * @see BidStrategies
+ */
+public class FictitiousPlayBidStrategy implements BidStrategy {
+	/**
+	 * How often the opponent made every offer, indexed by offer -
+	 * {@link Strategy#MIN_OFFER}. Starts at one for every offer, so we
+	 * don't assume anything before the first game.
+	 */
+	private final long[] opponentCounts = new long[Strategy.OFFER_COUNT];
+	/**
+	 * Offers with the highest expected utility, filled by {@link #getOffer}
+	 */
+	private final int[] bestOffers = new int[Strategy.OFFER_COUNT];
+
+	/**
+	 * Constructor that will set up the counts
+	 */
+	public FictitiousPlayBidStrategy() {
+		Arrays.fill(opponentCounts, 1);
+	}
+
+	/**
+	 * Returns the offer with the highest expected utility against the offers
+	 * the opponent made so far.
+	 *
+	 * @param random Random class of the player
+	 * @return the offer
+	 */
+	@Override
+	public int getOffer(Random random) {
+		long total = 0;
+		for (int i = 0; i < Strategy.OFFER_COUNT; i++) {
+			total += opponentCounts[i];
+		}
+
+		// Amount of times the opponent offered more than the current offer
+		long higher = total;
+		double bestUtility = -1;
+		int bestCount = 0;
+		for (int i = 0; i < Strategy.OFFER_COUNT; i++) {
+			higher -= opponentCounts[i];
+			// Expected utility times the total, which is the same for every offer
+			final double utility = (i + Strategy.MIN_OFFER) * (higher + opponentCounts[i] / 2.0);
+			if (utility > bestUtility) {
+				bestUtility = utility;
+				bestCount = 0;
+			}
+			if (utility == bestUtility) {
+				bestOffers[bestCount++] = i + Strategy.MIN_OFFER;
+			}
+		}
+
+		return bestOffers[bestCount == 1 ? 0 : random.nextInt(bestCount)];
+	}
+
+	/**
+	 * Will count the offer of the opponent.
+	 *
+	 * @param offer the offer we made
+	 * @param opponentOffer the offer the opponent made
+	 * @param utility the utility we got
+	 */
+	@Override
+	public void update(int offer, int opponentOffer, int utility) {
+		final int index = opponentOffer - Strategy.MIN_OFFER;
+		if (index >= 0 && index < Strategy.OFFER_COUNT) {
+			opponentCounts[index]++;
+		}
+	}
+}
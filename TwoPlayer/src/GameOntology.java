@@ -6,7 +6,8 @@ import jade.content.schema.ObjectSchema;
 import jade.content.schema.PrimitiveSchema;
 
 /**
- * This class will set up the Ontology for this project.
+ * This class will set up the Ontology for this project. The schemas are
+ * built once and shared by the ContentManagers of all agents in this JVM.
  * 
  * @author Mathijs van Bremen
  */
@@ -15,18 +16,15 @@ public class GameOntology extends Ontology implements GameVocabulary {
 	 * Name of this ontology.
 	 */
 	private static final String ONTOLOGY_NAME = "Prisoner-ontology";
-	/**
-	 * Singleton of this ontology class.
-	 */
-	private static Ontology instance = null;
 
 	/**
 	 * Private constructor as this class is a singleton. 
 	 * Will set up the ontology.
 	 */
 	private GameOntology() {
-		// This ontology extends the BasicOntology
-		super(ONTOLOGY_NAME, BasicOntology.getInstance());
+		// This ontology extends the BasicOntology, the introspector caches the
+		// accessors of the actions for all agents sharing this ontology
+		super(ONTOLOGY_NAME, BasicOntology.getInstance(), new CachingIntrospector());
 		
 		try {
 			// Add the Offer action
@@ -54,18 +52,25 @@ public class GameOntology extends Ontology implements GameVocabulary {
 	}
 	
 	/**
-	 * Creates the GameOntology instance if not yet created and returns it
+	 * Returns the GameOntology instance. The instance is created when the
+	 * {@link Holder} class is first used, which the JVM guarantees to happen
+	 * only once, so agents starting at the same time all get the same
+	 * ontology without any locking.
 	 * 
 	 * @return this GameOntology
 	 */
 	public static Ontology getInstance() {
-		// Define a new PrisonerOntology if not yet defined
-		if (instance == null) {
-			instance = new GameOntology();
-		}
-		
-		// Return the instance
-		return instance;
+		return Holder.INSTANCE;
 	}
 
+	/**
+	 * Holder of the singleton of this ontology class, initialized on first
+	 * use of {@link GameOntology#getInstance()}.
+	 */
+	private static class Holder {
+		/**
+		 * Singleton of this ontology class.
+		 */
+		private static final Ontology INSTANCE = new GameOntology();
+	}
 }
@@ -0,0 +1,252 @@
+import java.util.SplittableRandom;
+
+/**
+ * Headless version of the games played by the {@link PlayerAgent}s. Instead
+ * of sending a StartAction, OfferAction and ResponseAction for every game it
+ * draws the offers of many games at once into primitive arrays and decides
+ * all of them in a single loop, using the same rules as the {@link Strategy}:
+ * the lowest offer wins and gets its offer as utility, equal offers are
+ * decided by a coin flip.
+ *
+ * The games are split over a number of workers, each with its own
+ * {@link SplittableRandom} split off a single seed, so the workers never
+ * share any state and runs can be repeated.
+ *
+ * Next to simulating, the exact expected utility and chance of winning are
+ * calculated from the offer probabilities of both players, so the results
+ * of the agents and of the simulation can be checked against them.
+ *
+ * Run it with (all arguments are optional):
+ * <pre>
+ * java GameSimulator [games] [workers] [seed]
+ * </pre>
+ *
+ * @author Mathijs van Bremen
+ * @see Strategy, ControllerAgent
+ */
+public class GameSimulator {
+	/**
+	 * Amount of games every worker decides at once
+	 */
+	private static final int BATCH_SIZE = 4096;
+
+	/**
+	 * The probability of every offer of both players, indexed by player
+	 * and offer - {@link Strategy#MIN_OFFER}
+	 */
+	private final double[][] probabilities;
+	/**
+	 * The cumulative probability of every offer of both players, used to
+	 * draw the offers
+	 */
+	private final double[][] cumulative;
+
+	/**
+	 * Constructor that will set up the games between two players making
+	 * offers with the given probabilities.
+	 *
+	 * @param probabilities the probability of every offer of the first player,
+	 * indexed by offer - {@link Strategy#MIN_OFFER}
+	 * @param opponentProbabilities the probability of every offer of the
+	 * second player
+	 */
+	public GameSimulator(double[] probabilities, double[] opponentProbabilities) {
+		if (probabilities.length != Strategy.OFFER_COUNT || opponentProbabilities.length != Strategy.OFFER_COUNT) {
+			throw new IllegalArgumentException("Expected a probability for all " + Strategy.OFFER_COUNT + " offers");
+		}
+
+		this.probabilities = new double[][] { probabilities.clone(), opponentProbabilities.clone() };
+		this.cumulative = new double[2][Strategy.OFFER_COUNT];
+		for (int player = 0; player < 2; player++) {
+			double sum = 0;
+			for (int i = 0; i < Strategy.OFFER_COUNT; i++) {
+				sum += this.probabilities[player][i];
+				cumulative[player][i] = sum;
+			}
+			// Make sure the last offer is always drawn for the rounding errors
+			cumulative[player][Strategy.OFFER_COUNT - 1] = Double.POSITIVE_INFINITY;
+		}
+	}
+
+	/**
+	 * Constructor that will set up the games between players using the
+	 * {@link BidStrategy}s with the given names.
+	 *
+	 * @param bidderName name of the BidStrategy of the first player
+	 * @param opponentBidderName name of the BidStrategy of the second player
+	 * @see BidStrategies#getOfferProbabilities(String)
+	 */
+	public GameSimulator(String bidderName, String opponentBidderName) {
+		this(BidStrategies.getOfferProbabilities(bidderName), BidStrategies.getOfferProbabilities(opponentBidderName));
+	}
+
+	/**
+	 * Returns the exact expected utility of a single game for the given player.
+	 *
+	 * @param player 0 for the first player, 1 for the second
+	 * @return the expected utility
+	 */
+	public double getExpectedUtility(int player) {
+		final double[] own = probabilities[player];
+		final double[] other = probabilities[1 - player];
+		// Chance the opponent offers more than the current offer
+		double higher = 1;
+		double utility = 0;
+		for (int i = 0; i < Strategy.OFFER_COUNT; i++) {
+			higher -= other[i];
+			// Winning gives us our own offer, ties are won half of the time
+			utility += own[i] * (i + Strategy.MIN_OFFER) * (higher + other[i] / 2);
+		}
+
+		return utility;
+	}
+
+	/**
+	 * Returns the exact chance the given player wins a single game.
+	 *
+	 * @param player 0 for the first player, 1 for the second
+	 * @return the chance of winning
+	 */
+	public double getWinProbability(int player) {
+		final double[] own = probabilities[player];
+		final double[] other = probabilities[1 - player];
+		double higher = 1;
+		double chance = 0;
+		for (int i = 0; i < Strategy.OFFER_COUNT; i++) {
+			higher -= other[i];
+			chance += own[i] * (higher + other[i] / 2);
+		}
+
+		return chance;
+	}
+
+	/**
+	 * Will play the given amount of games, split over the given amount of
+	 * workers.
+	 *
+	 * @param games the amount of games to play
+	 * @param workers the amount of threads to play on
+	 * @param seed seed of the random generators so runs can be repeated
+	 * @return the total utility of both players followed by the amount of
+	 * games won by both players
+	 */
+	public long[] simulate(long games, int workers, long seed) {
+		final SplittableRandom random = new SplittableRandom(seed);
+		final long[][] results = new long[workers][];
+		final Thread[] threads = new Thread[workers];
+		for (int i = 0; i < workers; i++) {
+			// Divide the games, the first workers play the remainder
+			final long share = games / workers + (i < games % workers ? 1 : 0);
+			final SplittableRandom workerRandom = random.split();
+			final int index = i;
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					results[index] = play(share, workerRandom);
+				}
+			}, "GameSimulator-" + i);
+			threads[i].start();
+		}
+
+		// Add up the results of all workers
+		final long[] totals = new long[4];
+		for (int i = 0; i < workers; i++) {
+			try {
+				threads[i].join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while simulating", e);
+			}
+			for (int j = 0; j < totals.length; j++) {
+				totals[j] += results[i][j];
+			}
+		}
+
+		return totals;
+	}
+
+	/**
+	 * Will play the given amount of games in batches of {@link #BATCH_SIZE}.
+	 * Only called by a single worker.
+	 *
+	 * @param games the amount of games to play
+	 * @param random the random generator of the worker
+	 * @return the total utility of both players followed by the amount of
+	 * games won by both players
+	 */
+	private long[] play(long games, SplittableRandom random) {
+		final int[] offers = new int[BATCH_SIZE];
+		final int[] opponentOffers = new int[BATCH_SIZE];
+		final int[] coins = new int[BATCH_SIZE];
+		long utility = 0;
+		long opponentUtility = 0;
+		long won = 0;
+
+		for (long played = 0; played < games; played += BATCH_SIZE) {
+			final int size = (int) Math.min(BATCH_SIZE, games - played);
+			// Draw all offers and coin flips of this batch
+			draw(cumulative[0], offers, size, random);
+			draw(cumulative[1], opponentOffers, size, random);
+			for (int i = 0; i < size; i++) {
+				coins[i] = random.nextInt(2);
+			}
+
+			// Decide all games of this batch
+			for (int i = 0; i < size; i++) {
+				final int offer = offers[i];
+				final int opponentOffer = opponentOffers[i];
+				// We win with a lower offer or with an equal offer and a won coin flip
+				final int win = offer < opponentOffer || (offer == opponentOffer && coins[i] == 1) ? 1 : 0;
+				utility += win * offer;
+				opponentUtility += (1 - win) * opponentOffer;
+				won += win;
+			}
+		}
+
+		return new long[] { utility, opponentUtility, won, games - won };
+	}
+
+	/**
+	 * Will fill the given array with offers drawn from the given cumulative
+	 * probabilities.
+	 *
+	 * @param cumulative the cumulative probability of every offer
+	 * @param offers the array to fill
+	 * @param size the amount of offers to draw
+	 * @param random the random generator to use
+	 */
+	private static void draw(double[] cumulative, int[] offers, int size, SplittableRandom random) {
+		for (int i = 0; i < size; i++) {
+			final double value = random.nextDouble();
+			int index = 0;
+			while (value >= cumulative[index]) {
+				index++;
+			}
+			offers[i] = index + Strategy.MIN_OFFER;
+		}
+	}
+
+	/**
+	 * Will play games between the same players as the {@link ControllerAgent}
+	 * and print the simulated and the exact results of both players.
+	 *
+	 * @param args optional amount of games, workers and seed
+	 */
+	public static void main(String[] args) {
+		final long games = args.length > 0 ? Long.parseLong(args[0]) : 10000000L;
+		final int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		final long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+
+		final GameSimulator simulator = new GameSimulator(BidStrategies.RANDOM, BidStrategies.RANDOM);
+		final long start = System.nanoTime();
+		final long[] totals = simulator.simulate(games, workers, seed);
+		final long millis = (System.nanoTime() - start) / 1000000L;
+
+		System.out.println(games + " games on " + workers + " workers in " + millis + " ms");
+		for (int player = 0; player < 2; player++) {
+			System.out.printf("Player%d | utility %.4f (exact %.4f) | won %.4f (exact %.4f)%n", player + 1,
+					(double) totals[player] / games, simulator.getExpectedUtility(player),
+					(double) totals[2 + player] / games, simulator.getWinProbability(player));
+		}
+	}
+}
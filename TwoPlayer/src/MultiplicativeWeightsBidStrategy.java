@@ -0,0 +1,114 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * BidStrategy that keeps a weight for every offer and picks its offers at
+ * random in proportion to those weights. After every game the weight of
+ * every offer is multiplied by a factor depending on the utility that offer
+ * would have had against the offer of the opponent, so offers that would
+ * have done well are picked more often (the Hedge algorithm).
+ *
+ * @author Mathijs van Bremen
+ * @see BidStrategies
+ */
+public class MultiplicativeWeightsBidStrategy implements BidStrategy {
+	/**
+	 * Learning rate, the higher the faster the weights follow the opponent
+	 */
+	private static final double LEARNING_RATE = 0.05;
+	/**
+	 * Weights above this value are scaled down so they can't overflow
+	 */
+	private static final double MAX_WEIGHT = 1e100;
+	/**
+	 * Factor for the weight of every offer against every offer of the
+	 * opponent, indexed by opponent's offer * {@link Strategy#OFFER_COUNT} +
+	 * offer, both - {@link Strategy#MIN_OFFER}. The same for every instance.
+	 */
+	private static final double[] FACTORS = createFactors();
+
+	/**
+	 * Weight of every offer, indexed by offer - {@link Strategy#MIN_OFFER}
+	 */
+	private final double[] weights = new double[Strategy.OFFER_COUNT];
+
+	/**
+	 * Constructor that will give every offer the same weight
+	 */
+	public MultiplicativeWeightsBidStrategy() {
+		Arrays.fill(weights, 1);
+	}
+
+	/**
+	 * Returns a random offer, picked in proportion to the weights.
+	 *
+	 * @param random Random class of the player
+	 * @return the offer
+	 */
+	@Override
+	public int getOffer(Random random) {
+		double total = 0;
+		for (int i = 0; i < Strategy.OFFER_COUNT; i++) {
+			total += weights[i];
+		}
+
+		double value = random.nextDouble() * total;
+		for (int i = 0; i < Strategy.OFFER_COUNT - 1; i++) {
+			value -= weights[i];
+			if (value < 0) {
+				return i + Strategy.MIN_OFFER;
+			}
+		}
+
+		return Strategy.MAX_OFFER;
+	}
+
+	/**
+	 * Will update the weight of every offer with the utility it would have
+	 * had against the offer of the opponent.
+	 *
+	 * @param offer the offer we made
+	 * @param opponentOffer the offer the opponent made
+	 * @param utility the utility we got
+	 */
+	@Override
+	public void update(int offer, int opponentOffer, int utility) {
+		final int index = opponentOffer - Strategy.MIN_OFFER;
+		if (index < 0 || index >= Strategy.OFFER_COUNT) {
+			return;
+		}
+
+		final int offset = index * Strategy.OFFER_COUNT;
+		double max = 0;
+		for (int i = 0; i < Strategy.OFFER_COUNT; i++) {
+			weights[i] *= FACTORS[offset + i];
+			max = Math.max(max, weights[i]);
+		}
+
+		// Only the ratios between the weights matter, so scale them down
+		if (max > MAX_WEIGHT) {
+			for (int i = 0; i < Strategy.OFFER_COUNT; i++) {
+				weights[i] /= max;
+			}
+		}
+	}
+
+	/**
+	 * Returns the factors for the weights, see {@link #FACTORS}.
+	 *
+	 * @return the factors
+	 */
+	private static double[] createFactors() {
+		final double[] factors = new double[Strategy.OFFER_COUNT * Strategy.OFFER_COUNT];
+		for (int opponentOffer = 0; opponentOffer < Strategy.OFFER_COUNT; opponentOffer++) {
+			for (int offer = 0; offer < Strategy.OFFER_COUNT; offer++) {
+				// Utility scaled to 0-1 so the learning rate doesn't depend on the offers
+				final double utility = BidStrategies.getExpectedUtility(offer + Strategy.MIN_OFFER,
+						opponentOffer + Strategy.MIN_OFFER) / Strategy.MAX_OFFER;
+				factors[opponentOffer * Strategy.OFFER_COUNT + offer] = Math.exp(LEARNING_RATE * utility);
+			}
+		}
+
+		return factors;
+	}
+}
@@ -1,44 +1,88 @@
-import jade.content.Concept;
+import java.util.concurrent.atomic.LongAdder;
+
+import jade.core.AID;
 import jade.core.behaviours.Behaviour;
 import jade.core.behaviours.CyclicBehaviour;
-import jade.core.behaviours.OneShotBehaviour;
 import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
 
 /**
  * Agent that can play the game as stated in the {@link ControllerAgent}.
- * Will keep track of the total utility it has.
+ * Will keep track of the total utility it has in the {@link Scoreboard}.
  * 
  * @author Mathijs van Bremen
  * @see ControllerAgent
  */
 public class PlayerAgent extends BaseAgent implements GameVocabulary {		
+	/**
+	 * Maximum amount of games we initiated that can run at the same time
+	 */
+	private static final int MAX_ACTIVE_GAMES = 16;
+	/**
+	 * Maximum amount of messages in our message queue
+	 */
+	private static final int INBOX_SIZE = 1024;
+	/**
+	 * Name of the {@link BidStrategy} deciding on our offers, the players 
+	 * are grouped by it in the {@link Scoreboard}
+	 */
+	private String bidderName = Scoreboard.UNKNOWN;
 	/**
 	 * The Strategy passed via the arguments on setup
 	 */
 	private Strategy strategy;
 	
 	/**
-	 * Total amount of utility this PlayerAgent has won so far
+	 * Total amount of utility this PlayerAgent has won so far, kept in 
+	 * the {@link Scoreboard}
 	 */
-	private long utility = 0;
+	private LongAdder utility;
+	/**
+	 * The {@link AID} of the {@link ControllerAgent} passed via the arguments 
+	 * on setup, null if not passed
+	 */
+	private AID controller;
 
 	/**
-	 * Will get the {@link Strategy} from the arguments
+	 * Will set up the {@link Strategy} with the {@link BidStrategy} named 
+	 * in the arguments, get the controller from the arguments if given and 
+	 * limit the size of the message queue.
 	 */
 	@Override
 	protected void onSetup() {
 		// Get the arguments passed to this Agent
 		final Object[] args = getArguments();
 		if (args != null) {
-			// Get the strategy from the arguments and save it
-			strategy = new Strategy(this, (Strategy.StrategyType) args[0]);
+			// Get the BidStrategy from the arguments by its name, the arguments 
+			// are Strings when this agent is started from the command line
+			bidderName = args[0].toString();
+			strategy = new Strategy(this, BidStrategies.create(bidderName));
+			// Get the controller from the arguments if given
+			if (args.length > 1) {
+				controller = (AID) args[1];
+			}
+		} else {
+			// Without a BidStrategy we always offer the max
+			strategy = new Strategy(this, null);
 		}
+		
+		// Make sure the message queue can't grow without limits
+		setQueueSize(INBOX_SIZE);
+		
+		// Let the other players know our BidStrategy and keep our score
+		utility = Scoreboard.getInstance().register(getName(), bidderName);
 	}
 	
 	/**
 	 * Returns a new Behaviour for this PlayerAgent. This will be a 
-	 * CyclicBehaviour that will simply wait for messages and let the 
-	 * {@link Strategy} class handle it.
+	 * CyclicBehaviour that will take the messages of the games we're playing 
+	 * out of the message queue and let the {@link Strategy} class handle them. 
+	 * When there are no messages the Behaviour blocks until a new message 
+	 * arrives, so other Behaviours of this agent can still run. 
+	 * 
+	 * Once {@link #MAX_ACTIVE_GAMES} games we initiated are still running, 
+	 * new {@link StartAction}s of the controller are refused so the controller 
+	 * can send them again later instead of filling up our message queue.
 	 * 
 	 * @return Returns a {@link Behaviour}
 	 * @see CyclicBehaviour
@@ -46,13 +90,63 @@ public class PlayerAgent extends BaseAgent implements GameVocabulary {
 	@Override
 	protected Behaviour getBehaviour() {
 		return new CyclicBehaviour(this) {
+			/**
+			 * Template matching the messages sent by the controller
+			 */
+			private MessageTemplate controllerTemplate;
+			/**
+			 * Template matching the messages of the games with other players
+			 */
+			private MessageTemplate gameTemplate;
+			
+			/**
+			 * Called before this Behaviour runs for the first time.
+			 */
+			@Override
+			public void onStart() {
+				// Games are played in our ontology and every game has a conversation id
+				final MessageTemplate ontologyTemplate = MessageTemplate.and(
+						MessageTemplate.MatchOntology(getOntology().getName()), 
+						new MessageTemplate(new HasConversationId()));
+				
+				// The controller is only known after the setup, if not passed 
+				// handle its messages like all other ones
+				if (controller != null) {
+					controllerTemplate = MessageTemplate.and(ontologyTemplate, MessageTemplate.MatchSender(controller));
+					gameTemplate = MessageTemplate.and(ontologyTemplate, MessageTemplate.not(MessageTemplate.MatchSender(controller)));
+				} else {
+					gameTemplate = ontologyTemplate;
+				}
+			}
+			
 			/**
 			 * Called when this Behaviour will be ran.
 			 */
 			@Override
 			public void action() {
-				// Block until we receive a message
-				final ACLMessage msg = blockingReceive();
+				// Handle the messages of running games first so they can finish
+				ACLMessage msg = myAgent.receive(gameTemplate);
+				if (msg == null && controllerTemplate != null) {
+					msg = myAgent.receive(controllerTemplate);
+					
+					// Refuse to start new games when we're running too many
+					if (msg != null && strategy.getActiveGames() >= MAX_ACTIVE_GAMES) {
+						final ACLMessage reply = msg.createReply();
+						reply.setPerformative(ACLMessage.REFUSE);
+						myAgent.send(reply);
+						return;
+					}
+				}
+				if (msg == null) {
+					// Drop messages that aren't part of any game
+					if (myAgent.receive() != null) {
+						return;
+					}
+					
+					// Wait for the next message
+					block();
+					return;
+				}
 				
 				// Let the Strategy handle the message
 				strategy.handleMsg(msg);				
@@ -63,11 +157,32 @@ public class PlayerAgent extends BaseAgent implements GameVocabulary {
 	/**
 	 * Updates the {@link #utility} with the given amount.
 	 * 
-	 * @param utility the amount of Utility to add
+	 * @param utility the amount of Utility to add, 0 if we lost the game
+	 * @param opponentName name of the opponent's agent
 	 */
-	protected void updateUtility(int utility) {
-		this.utility += utility;
-		
-		System.out.println(this.getName() + " | " + this.utility);
+	protected void updateUtility(int utility, String opponentName) {
+		final Scoreboard scoreboard = Scoreboard.getInstance();
+		scoreboard.record(this.utility, bidderName, scoreboard.getBidderName(opponentName), utility);
+	}
+	
+	/**
+	 * Expression matching the messages that have a conversation id.
+	 */
+	private static class HasConversationId implements MessageTemplate.MatchExpression {
+		/**
+		 * Required as MessageTemplates are serializable
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Returns whether the given message has a conversation id.
+		 * 
+		 * @param msg the message to check
+		 * @return true if the message has a conversation id
+		 */
+		@Override
+		public boolean match(ACLMessage msg) {
+			return msg.getConversationId() != null;
+		}
 	}
 }
@@ -0,0 +1,97 @@
+import java.util.Random;
+
+/**
+ * BidStrategy that learns the value of every offer by Q-learning. The state
+ * is the last offer of the opponent, so it can learn to react to an
+ * opponent that changes its offer depending on the previous game. The
+ * reward is the utility we got. Offers are picked epsilon-greedy: mostly
+ * the offer with the highest value, sometimes a random one to keep
+ * exploring.
+ *
+ * @author Mathijs van Bremen
+ * @see BidStrategies
+ */
+public class QLearningBidStrategy implements BidStrategy {
+	/**
+	 * Learning rate, the weight of a new reward
+	 */
+	private static final double LEARNING_RATE = 0.1;
+	/**
+	 * Discount of the value of the next state
+	 */
+	private static final double DISCOUNT = 0.9;
+	/**
+	 * Chance of picking a random offer instead of the best one
+	 */
+	private static final double EXPLORATION = 0.05;
+	/**
+	 * State before the first game, when there is no last offer yet
+	 */
+	private static final int INITIAL_STATE = Strategy.OFFER_COUNT;
+
+	/**
+	 * Value of every offer in every state, indexed by state *
+	 * {@link Strategy#OFFER_COUNT} + offer - {@link Strategy#MIN_OFFER}
+	 */
+	private final double[] values = new double[(Strategy.OFFER_COUNT + 1) * Strategy.OFFER_COUNT];
+	/**
+	 * The current state, the last offer of the opponent - {@link Strategy#MIN_OFFER}
+	 */
+	private int state = INITIAL_STATE;
+
+	/**
+	 * Returns the offer with the highest value in the current state, or
+	 * sometimes a random offer.
+	 *
+	 * @param random Random class of the player
+	 * @return the offer
+	 */
+	@Override
+	public int getOffer(Random random) {
+		if (random.nextDouble() < EXPLORATION) {
+			return random.nextInt(Strategy.OFFER_COUNT) + Strategy.MIN_OFFER;
+		}
+
+		return getBestOffer(state) + Strategy.MIN_OFFER;
+	}
+
+	/**
+	 * Will update the value of the offer we made in the current state and
+	 * move to the state of the opponent's offer.
+	 *
+	 * @param offer the offer we made
+	 * @param opponentOffer the offer the opponent made
+	 * @param utility the utility we got
+	 */
+	@Override
+	public void update(int offer, int opponentOffer, int utility) {
+		final int action = offer - Strategy.MIN_OFFER;
+		final int nextState = opponentOffer - Strategy.MIN_OFFER;
+		if (action < 0 || action >= Strategy.OFFER_COUNT || nextState < 0 || nextState >= Strategy.OFFER_COUNT) {
+			return;
+		}
+
+		final int index = state * Strategy.OFFER_COUNT + action;
+		final double next = values[nextState * Strategy.OFFER_COUNT + getBestOffer(nextState)];
+		values[index] += LEARNING_RATE * (utility + DISCOUNT * next - values[index]);
+		state = nextState;
+	}
+
+	/**
+	 * Returns the offer with the highest value in the given state.
+	 *
+	 * @param state the state
+	 * @return the offer - {@link Strategy#MIN_OFFER}
+	 */
+	private int getBestOffer(int state) {
+		final int offset = state * Strategy.OFFER_COUNT;
+		int best = 0;
+		for (int i = 1; i < Strategy.OFFER_COUNT; i++) {
+			if (values[offset + i] > values[offset + best]) {
+				best = i;
+			}
+		}
+
+		return best;
+	}
+}
@@ -0,0 +1,46 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * BidStrategy that picks a random offer between {@link Strategy#MIN_OFFER}
+ * and {@link Strategy#MAX_OFFER} every game, ignoring what the opponent does.
+ *
+ * @author Mathijs van Bremen
+ * @see BidStrategies
+ */
+public class RandomBidStrategy implements BidStrategy {
+	/**
+	 * Returns a random offer.
+	 *
+	 * @param random Random class of the player
+	 * @return the offer
+	 */
+	@Override
+	public int getOffer(Random random) {
+		return random.nextInt(Strategy.OFFER_COUNT) + Strategy.MIN_OFFER;
+	}
+
+	/**
+	 * Does nothing, as we don't learn.
+	 *
+	 * @param offer the offer we made
+	 * @param opponentOffer the offer the opponent made
+	 * @param utility the utility we got
+	 */
+	@Override
+	public void update(int offer, int opponentOffer, int utility) {
+	}
+
+	/**
+	 * Returns the probability of every offer, which are all equally likely.
+	 *
+	 * @return the probabilities, indexed by offer - {@link Strategy#MIN_OFFER}
+	 */
+	@Override
+	public double[] getOfferProbabilities() {
+		final double[] probabilities = new double[Strategy.OFFER_COUNT];
+		Arrays.fill(probabilities, 1.0 / Strategy.OFFER_COUNT);
+
+		return probabilities;
+	}
+}
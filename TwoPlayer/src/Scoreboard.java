@@ -0,0 +1,338 @@
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Scoreboard shared by all agents in this JVM. The {@link PlayerAgent}s add
+ * the utility of every game to it and the {@link ControllerAgent} takes a
+ * {@link Snapshot} of it whenever all games of a round are finished.
+ *
+ * Players are grouped by the name of the {@link BidStrategy} they bid with,
+ * as registered in the {@link BidStrategies}, so BidStrategies that are
+ * registered later get totals of their own as well.
+ *
+ * All counters are {@link LongAdder}s, which spread concurrent updates over
+ * multiple cells, so players updating the scoreboard at the same time don't
+ * have to wait for each other and never block on the console.
+ *
+ * @author Mathijs van Bremen
+ * @see PlayerAgent, ControllerAgent
+ */
+public class Scoreboard {
+	/**
+	 * Name used for players that aren't registered or don't have a
+	 * {@link BidStrategy}
+	 */
+	public static final String UNKNOWN = "unknown";
+	/**
+	 * Index of the games that were lost
+	 */
+	private static final int LOST = 0;
+	/**
+	 * Index of the games that were won
+	 */
+	private static final int WON = 1;
+	/**
+	 * Singleton of this class
+	 */
+	private static final Scoreboard INSTANCE = new Scoreboard();
+
+	/**
+	 * {@link ConcurrentMap} containing the name of a player's agent and the
+	 * name of its BidStrategy
+	 */
+	private final ConcurrentMap<String, String> bidderNames = new ConcurrentHashMap<>();
+	/**
+	 * {@link ConcurrentMap} containing the name of a player's agent and its utility
+	 */
+	private final ConcurrentMap<String, LongAdder> playerUtility = new ConcurrentHashMap<>();
+	/**
+	 * {@link ConcurrentMap} containing the name of a BidStrategy and the
+	 * utility of all its players
+	 */
+	private final ConcurrentMap<String, LongAdder> bidderUtility = new ConcurrentHashMap<>();
+	/**
+	 * {@link ConcurrentMap} containing the name of a BidStrategy and the
+	 * utility its players got against the players of every BidStrategy
+	 */
+	private final ConcurrentMap<String, ConcurrentMap<String, LongAdder>> pairingUtility = new ConcurrentHashMap<>();
+	/**
+	 * Amount of games lost and won, indexed by {@link #LOST} and {@link #WON}
+	 */
+	private final LongAdder[] outcomes = createAdders(2);
+
+	/**
+	 * Private constructor as this class is a singleton.
+	 */
+	private Scoreboard() {
+	}
+
+	/**
+	 * Returns the scoreboard shared by all agents in this JVM.
+	 *
+	 * @return the Scoreboard
+	 */
+	public static Scoreboard getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Will register the player with the given name and BidStrategy and
+	 * return the counter for its utility.
+	 *
+	 * @param playerName name of the player's agent
+	 * @param bidderName name of the BidStrategy of the player
+	 * @return the counter for the utility of the player
+	 */
+	public LongAdder register(String playerName, String bidderName) {
+		bidderNames.put(playerName, bidderName);
+		// Keep the counter if the player was registered before
+		return getAdder(playerUtility, playerName);
+	}
+
+	/**
+	 * Returns the name of the BidStrategy of the player with the given name.
+	 *
+	 * @param playerName name of the player's agent
+	 * @return the name or {@link #UNKNOWN} if the player isn't registered
+	 */
+	public String getBidderName(String playerName) {
+		final String bidderName = bidderNames.get(playerName);
+
+		return bidderName != null ? bidderName : UNKNOWN;
+	}
+
+	/**
+	 * Will add the result of a single game, as seen by one of the players.
+	 * Every game is recorded by both players, the player that lost the game
+	 * with a utility of 0.
+	 *
+	 * @param player the counter of the player as returned by {@link #register}
+	 * @param bidderName name of the BidStrategy of the player
+	 * @param opponentBidderName name of the BidStrategy of the opponent
+	 * @param utility the utility the player got
+	 */
+	public void record(LongAdder player, String bidderName, String opponentBidderName, int utility) {
+		player.add(utility);
+		getAdder(bidderUtility, bidderName).add(utility);
+		getAdder(getPairings(bidderName), opponentBidderName).add(utility);
+		outcomes[utility > 0 ? WON : LOST].increment();
+	}
+
+	/**
+	 * Returns a copy of the current values of all counters. Games that are
+	 * recorded while the snapshot is taken may or may not be part of it, so
+	 * take it when no games are being played for exact values.
+	 *
+	 * @return the Snapshot
+	 */
+	public Snapshot snapshot() {
+		final String[] playerNames = playerUtility.keySet().toArray(new String[0]);
+		Arrays.sort(playerNames);
+		final String[] playerBidders = new String[playerNames.length];
+		final long[] players = new long[playerNames.length];
+		for (int i = 0; i < playerNames.length; i++) {
+			playerBidders[i] = getBidderName(playerNames[i]);
+			players[i] = playerUtility.get(playerNames[i]).sum();
+		}
+
+		final Map<String, Map<String, Long>> pairings = new TreeMap<>();
+		for (Map.Entry<String, ConcurrentMap<String, LongAdder>> entry : pairingUtility.entrySet()) {
+			pairings.put(entry.getKey(), sum(entry.getValue()));
+		}
+
+		return new Snapshot(playerNames, playerBidders, players, sum(bidderUtility), pairings,
+				new long[] { outcomes[LOST].sum(), outcomes[WON].sum() });
+	}
+
+	/**
+	 * Returns the counters of the utility the players of the given
+	 * BidStrategy got against every other BidStrategy.
+	 *
+	 * @param bidderName name of the BidStrategy
+	 * @return the counters, indexed by the name of the opponent's BidStrategy
+	 */
+	private ConcurrentMap<String, LongAdder> getPairings(String bidderName) {
+		final ConcurrentMap<String, LongAdder> pairings = pairingUtility.get(bidderName);
+		if (pairings != null) {
+			return pairings;
+		}
+
+		// Another player may have added the BidStrategy in the meantime
+		final ConcurrentMap<String, LongAdder> created = new ConcurrentHashMap<>();
+		final ConcurrentMap<String, LongAdder> existing = pairingUtility.putIfAbsent(bidderName, created);
+
+		return existing != null ? existing : created;
+	}
+
+	/**
+	 * Returns the counter with the given name, adding it if there is none.
+	 *
+	 * @param adders the counters
+	 * @param name the name of the counter
+	 * @return the counter
+	 */
+	private static LongAdder getAdder(ConcurrentMap<String, LongAdder> adders, String name) {
+		final LongAdder adder = adders.get(name);
+		if (adder != null) {
+			return adder;
+		}
+
+		// Another player may have added the counter in the meantime
+		final LongAdder created = new LongAdder();
+		final LongAdder existing = adders.putIfAbsent(name, created);
+
+		return existing != null ? existing : created;
+	}
+
+	/**
+	 * Returns the sum of every given counter.
+	 *
+	 * @param adders the counters
+	 * @return the sums, sorted by the names of the counters
+	 */
+	private static Map<String, Long> sum(Map<String, LongAdder> adders) {
+		final Map<String, Long> sums = new TreeMap<>();
+		for (Map.Entry<String, LongAdder> entry : adders.entrySet()) {
+			sums.put(entry.getKey(), entry.getValue().sum());
+		}
+
+		return sums;
+	}
+
+	/**
+	 * Returns the given amount of new counters.
+	 *
+	 * @param size the amount of counters
+	 * @return the counters
+	 */
+	private static LongAdder[] createAdders(int size) {
+		final LongAdder[] adders = new LongAdder[size];
+		for (int i = 0; i < size; i++) {
+			adders[i] = new LongAdder();
+		}
+
+		return adders;
+	}
+
+	/**
+	 * Copy of the values of the {@link Scoreboard} at a certain moment.
+	 */
+	public static class Snapshot {
+		/**
+		 * Names of the players, sorted
+		 */
+		private final String[] playerNames;
+		/**
+		 * Name of the BidStrategy of every player, indexed like the {@link #playerNames}
+		 */
+		private final String[] playerBidders;
+		/**
+		 * Utility of every player, indexed like the {@link #playerNames}
+		 */
+		private final long[] playerUtility;
+		/**
+		 * Utility of every BidStrategy, by name
+		 */
+		private final Map<String, Long> bidderUtility;
+		/**
+		 * Utility of every BidStrategy against every other BidStrategy, by name
+		 */
+		private final Map<String, Map<String, Long>> pairingUtility;
+		/**
+		 * Amount of games lost and won
+		 */
+		private final long[] outcomes;
+
+		/**
+		 * Constructor that will simply set given parameters
+		 *
+		 * @param playerNames names of the players
+		 * @param playerBidders name of the BidStrategy of every player
+		 * @param playerUtility utility of every player
+		 * @param bidderUtility utility of every BidStrategy
+		 * @param pairingUtility utility of every pairing of BidStrategies
+		 * @param outcomes amount of games lost and won
+		 */
+		private Snapshot(String[] playerNames, String[] playerBidders, long[] playerUtility,
+				Map<String, Long> bidderUtility, Map<String, Map<String, Long>> pairingUtility, long[] outcomes) {
+			this.playerNames = playerNames;
+			this.playerBidders = playerBidders;
+			this.playerUtility = playerUtility;
+			this.bidderUtility = bidderUtility;
+			this.pairingUtility = pairingUtility;
+			this.outcomes = outcomes;
+		}
+
+		/**
+		 * Returns the utility of the players of the given BidStrategy.
+		 *
+		 * @param bidderName name of the BidStrategy
+		 * @return the utility
+		 */
+		public long getUtility(String bidderName) {
+			final Long utility = bidderUtility.get(bidderName);
+
+			return utility != null ? utility : 0;
+		}
+
+		/**
+		 * Returns the utility the players of the given BidStrategy got
+		 * against the players of the other given BidStrategy.
+		 *
+		 * @param bidderName name of the BidStrategy
+		 * @param opponentBidderName name of the BidStrategy of the opponent
+		 * @return the utility
+		 */
+		public long getUtility(String bidderName, String opponentBidderName) {
+			final Map<String, Long> pairings = pairingUtility.get(bidderName);
+			final Long utility = pairings != null ? pairings.get(opponentBidderName) : null;
+
+			return utility != null ? utility : 0;
+		}
+
+		/**
+		 * Returns the amount of games that were won, as every game is recorded
+		 * by both players this is the amount of games played.
+		 *
+		 * @return the amount of games won
+		 */
+		public long getWon() {
+			return outcomes[WON];
+		}
+
+		/**
+		 * Returns the amount of games that were lost.
+		 *
+		 * @return the amount of games lost
+		 */
+		public long getLost() {
+			return outcomes[LOST];
+		}
+
+		/**
+		 * Will print the utility and BidStrategy of every player, the
+		 * utility of every BidStrategy and the amount of games that were
+		 * won and lost.
+		 *
+		 * @param out the stream to print to
+		 */
+		public void print(PrintStream out) {
+			final StringBuilder builder = new StringBuilder();
+			for (int i = 0; i < playerNames.length; i++) {
+				builder.append(playerNames[i]).append(" | ").append(playerBidders[i]).append(" | ")
+						.append(playerUtility[i]).append('\n');
+			}
+			for (Map.Entry<String, Long> entry : bidderUtility.entrySet()) {
+				builder.append(entry.getKey()).append(" | ").append(entry.getValue()).append('\n');
+			}
+			builder.append("Won ").append(getWon()).append(" | Lost ").append(getLost());
+
+			out.println(builder);
+		}
+	}
+}
@@ -1,3 +1,5 @@
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Random;
 
 import jade.content.AgentAction;
@@ -15,52 +17,66 @@ import jade.lang.acl.ACLMessage;
  * @see PlayerAgent, ControllerAgent
  */
 public class Strategy {
-	/**
-	 * Types of Strategies supported
-	 */
-	public enum StrategyType {
-		/**
-		 * Will pick random value between {@link Strategy#MIN_OFFER} 
-		 * and {@link Strategy#MAX_OFFER}
-		 */
-		RANDOM,
-		/**
-		 * Extra strategy in case opponent's strategy is not known yet
-		 */
-		UNKNOWN
-	}
-	/**
-	 * Our {@link StrategyType}, passed when creating this class
-	 */
-	private final StrategyType strategyType;
 	/**
 	 * The {@link PlayerAgent} this Strategy belongs to
 	 */
 	private final PlayerAgent agent;
+	/**
+	 * The {@link BidStrategy} deciding on our offers, null to always offer 
+	 * the {@link #MAX_OFFER}
+	 */
+	private final BidStrategy bidStrategy;
 	
 	/**
-	 * Random class to get random values for the {@link StrategyType#RANDOM} 
-	 * StrategyType
+	 * Random class passed to the {@link BidStrategy} to get random values
 	 */
 	private final Random random = new Random();
 	/**
 	 * Minimum offer we can give
 	 */
-	private static final int MIN_OFFER = 1;
+	public static final int MIN_OFFER = 1;
 	/**
 	 * Maximum offer we can give
 	 */
-	private static final int MAX_OFFER = 10;
+	public static final int MAX_OFFER = 10;
+	/**
+	 * Amount of different offers we can give
+	 */
+	public static final int OFFER_COUNT = MAX_OFFER - MIN_OFFER + 1;
+	/**
+	 * {@link Map} containing the name of an opponent's agent and the 
+	 * pre-encoded messages for them
+	 * 
+	 * @see #getTemplates(String, String)
+	 */
+	private final Map<String, ACLMessage[]> templateMap = new HashMap<>();
+	/**
+	 * The language the messages in the {@link #templateMap} are encoded in
+	 */
+	private String templateLanguage;
+	/**
+	 * {@link Map} containing the conversation id of every game we initiated 
+	 * and the offer we sent in it, so the BidStrategy can be updated once 
+	 * the response arrives
+	 */
+	private final Map<String, Integer> sentOffers = new HashMap<>();
+	/**
+	 * {@link Map} containing the conversation id of every game we initiated 
+	 * and the StartAction it was started with, so the {@link ControllerAgent} 
+	 * can be told once the game is finished
+	 */
+	private final Map<String, ACLMessage> startMessages = new HashMap<>();
 	
 	/**
 	 * Constructor that will simply set given parameters
 	 * 
 	 * @param agent the {@link PlayerAgent} this Strategy belongs to
-	 * @param strategyType the StrategyType we should follow
+	 * @param bidStrategy the BidStrategy deciding on our offers, null to 
+	 * always offer the {@link #MAX_OFFER}
 	 */
-	public Strategy(PlayerAgent agent, StrategyType strategyType) {
+	public Strategy(PlayerAgent agent, BidStrategy bidStrategy) {
 		this.agent = agent;
-		this.strategyType = strategyType;
+		this.bidStrategy = bidStrategy;
 	}
 	
 	/**
@@ -81,70 +97,84 @@ public class Strategy {
 				// Cast the action to the StartAction
 				final StartAction startAction = (StartAction) action;
 				
-				// Create a new OfferAction and set the offer
-				final OfferAction offerAction = new OfferAction();
-				offerAction.setOffer(getOffer());
-				
-				// Send the OfferAction to the opponent
-				sendNewACL(startAction.getOpponentName(), offerAction);
+				// Send an OfferAction with our offer to the opponent and 
+				// remember it for when the response arrives
+				final int offer = getOffer();
+				sentOffers.put(msg.getConversationId(), offer);
+				startMessages.put(msg.getConversationId(), msg);
+				sendOffer(startAction.getOpponentName(), offer, msg);
 			} else if (action instanceof OfferAction) {
 				// Cast the action to the OfferAction
 				final OfferAction offerAction = (OfferAction) action;
 				
-				// Create a new ResponseAction and set the offer
-				final ResponseAction responseAction = new ResponseAction();
-				responseAction.setOffer(getOffer());
+				// Decide on our offer
+				final int offer = getOffer();
+				// Utility for the opponent
+				final int utility;
 				// Check if we won or lost
-				if ( ((offerAction.getOffer() == responseAction.getOffer()) && getRandomWin()) 
-						|| (offerAction.getOffer() > responseAction.getOffer()) ) {
+				if ( ((offerAction.getOffer() == offer) && getRandomWin()) 
+						|| (offerAction.getOffer() > offer) ) {
 					// Offers were equal and we randomly won or opponent's offer was 
 					// higher than ours. Set the utility to 0 for the opponent and update 
 					// ours with the offer we set
-					responseAction.setUtility(0);
-					agent.updateUtility(responseAction.getOffer());
+					utility = 0;
+					agent.updateUtility(offer, msg.getSender().getName());
 				} else {
-					// Opponent won, so set utility to what opponent offered
-					responseAction.setUtility(offerAction.getOffer());					
+					// Opponent won, so set utility to what opponent offered and 
+					// record that we lost
+					utility = offerAction.getOffer();					
+					agent.updateUtility(0, msg.getSender().getName());
+				}
+				// Let the BidStrategy learn from this game
+				if (bidStrategy != null) {
+					bidStrategy.update(offer, offerAction.getOffer(), utility == 0 ? offer : 0);
 				}
 				
-				// Send the ResponseAction to the opponent
-				sendNewACL(msg.getSender().getName(), responseAction);
+				// Send a ResponseAction with the utility and our offer to the opponent
+				sendResponse(msg.getSender().getName(), utility, offer, msg);
 			} else if (action instanceof ResponseAction) {
 				// Cast the action to the ResponseAciton
 				final ResponseAction responseAction = (ResponseAction) action;
 				// Update the Agent's utility
-				agent.updateUtility(responseAction.getUtility());							
+				agent.updateUtility(responseAction.getUtility(), msg.getSender().getName());
+				// Let the BidStrategy learn from this game
+				final Integer offer = sentOffers.remove(msg.getConversationId());
+				if (bidStrategy != null && offer != null) {
+					bidStrategy.update(offer, responseAction.getOffer(), responseAction.getUtility());
+				}
+				// Both players have recorded the game, so let the controller know it's finished
+				final ACLMessage startMsg = startMessages.remove(msg.getConversationId());
+				if (startMsg != null) {
+					sendFinished(startMsg);
+				}
 			}
-			
-			// Logging
-//			System.out.println(agent.getName() + " | " + action.getClass().getName() 
-//					+ " | " + strategyType);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}		
 	}
 	
 	/**
-	 * Returns an offer depending on the current {@link StrategyType}. This 
-	 * offer will be within the {@link #MIN_OFFER} and {@link #MAX_OFFER}.
+	 * Returns the amount of games we initiated that are still running.
 	 * 
-	 * @return an offer depending on current {@link StrategyType}
+	 * @return the amount of games
+	 */
+	public int getActiveGames() {
+		return sentOffers.size();
+	}
+	
+	/**
+	 * Returns an offer decided by our {@link BidStrategy}. This offer should 
+	 * be within the {@link #MIN_OFFER} and {@link #MAX_OFFER}.
+	 * 
+	 * @return an offer decided by our {@link BidStrategy}
 	 */
 	private int getOffer() {
-		// Check which StrategyType we're in
-		switch (strategyType) {
-			case RANDOM: {
-				// Return a random value between min and max
-				return random.nextInt(MAX_OFFER - MIN_OFFER + 1) + MIN_OFFER;
-			}
-		
-			default:
-				// Do nothing
-				break;
+		// Without a BidStrategy just return the max
+		if (bidStrategy == null) {
+			return MAX_OFFER;
 		}
 		
-		// Unknown strategy, so just return the max
-		return MAX_OFFER;
+		return bidStrategy.getOffer(random);
 	}
 	
 	/**
@@ -157,17 +187,137 @@ public class Strategy {
 	}
 	
 	/**
-	 * Will send an {@link ACLMessage} to the given opponent's name. 
-	 * The message will contain the given AgentAction as content.
+	 * Will send an {@link OfferAction} with the given offer to the given opponent.
 	 * 
 	 * @param opponentName name of the opponent's agent
-	 * @param action either {@link CooperateAction} or {@link DefectAction}
+	 * @param offer the offer to send
+	 * @param cause the message we're reacting to, the new message will be sent 
+	 * in the same language and conversation
 	 */
-	private void sendNewACL(String opponentName, AgentAction action) {
+	private void sendOffer(String opponentName, int offer, ACLMessage cause) {
+		// Index of the pre-encoded message for this offer
+		final int index = offer - MIN_OFFER;
+		final ACLMessage[] templates = getTemplates(opponentName, cause.getLanguage());
+		if (index < 0 || index >= OFFER_COUNT || templates[index] == null) {
+			// Not encoded yet, so create a new OfferAction and set the offer
+			final OfferAction offerAction = new OfferAction();
+			offerAction.setOffer(offer);
+			final ACLMessage template = createTemplate(opponentName, offerAction, cause.getLanguage());
+			if (index < 0 || index >= OFFER_COUNT) {
+				// Offer out of range, so don't keep it
+				send(template, cause);
+				return;
+			}
+			templates[index] = template;
+		}
+		
+		send(templates[index], cause);
+	}
+	
+	/**
+	 * Will send a {@link ResponseAction} with the given utility and offer 
+	 * to the given opponent.
+	 * 
+	 * @param opponentName name of the opponent's agent
+	 * @param utility the utility the opponent gets
+	 * @param offer the offer we made
+	 * @param cause the message we're reacting to, the new message will be sent 
+	 * in the same language and conversation
+	 */
+	private void sendResponse(String opponentName, int utility, int offer, ACLMessage cause) {
+		// Index of the pre-encoded message for this utility and offer, 
+		// placed after the ones for the OfferActions
+		final boolean cacheable = offer >= MIN_OFFER && offer <= MAX_OFFER 
+				&& utility >= 0 && utility <= MAX_OFFER;
+		final int index = OFFER_COUNT + (offer - MIN_OFFER) * (MAX_OFFER + 1) + utility;
+		final ACLMessage[] templates = getTemplates(opponentName, cause.getLanguage());
+		if (!cacheable || templates[index] == null) {
+			// Not encoded yet, so create a new ResponseAction and set the utility and offer
+			final ResponseAction responseAction = new ResponseAction();
+			responseAction.setUtility(utility);
+			responseAction.setOffer(offer);
+			final ACLMessage template = createTemplate(opponentName, responseAction, cause.getLanguage());
+			if (!cacheable) {
+				// Values out of range, so don't keep it
+				send(template, cause);
+				return;
+			}
+			templates[index] = template;
+		}
+		
+		send(templates[index], cause);
+	}
+	
+	/**
+	 * Will send an INFORM to the {@link ControllerAgent} in the conversation 
+	 * of the given StartAction, telling it the game is finished.
+	 * 
+	 * @param startMsg the message containing the {@link StartAction} of the game
+	 */
+	private void sendFinished(ACLMessage startMsg) {
+		final ACLMessage reply = startMsg.createReply();
+		reply.setPerformative(ACLMessage.INFORM);
+		
+		agent.send(reply);
+	}
+	
+	/**
+	 * Will send a copy of the given pre-encoded message, stamped with the 
+	 * conversation id of the message we're reacting to.
+	 * 
+	 * @param template the pre-encoded message
+	 * @param cause the message we're reacting to
+	 */
+	private void send(ACLMessage template, ACLMessage cause) {
+		final ACLMessage msg = (ACLMessage) template.clone();
+		msg.setConversationId(cause.getConversationId());
+		
+		// Send the message
+		agent.send(msg);
+	}
+	
+	/**
+	 * Returns the pre-encoded messages for the given opponent, indexed by 
+	 * offer for the {@link OfferAction}s followed by the {@link ResponseAction}s 
+	 * indexed by offer and utility. As the content of these messages only depends 
+	 * on a couple of small values, every message is encoded only once for every 
+	 * opponent and language.
+	 * 
+	 * @param opponentName name of the opponent's agent
+	 * @param language the language the messages are encoded in
+	 * @return the pre-encoded messages, null for the ones not encoded yet
+	 */
+	private ACLMessage[] getTemplates(String opponentName, String language) {
+		// Drop the pre-encoded messages when we're talking in another language
+		if (!language.equals(templateLanguage)) {
+			templateMap.clear();
+			templateLanguage = language;
+		}
+		
+		ACLMessage[] templates = templateMap.get(opponentName);
+		if (templates == null) {
+			templates = new ACLMessage[OFFER_COUNT + OFFER_COUNT * (MAX_OFFER + 1)];
+			templateMap.put(opponentName, templates);
+		}
+		
+		return templates;
+	}
+	
+	/**
+	 * Will create an {@link ACLMessage} for the given opponent's name. 
+	 * The message will contain the given AgentAction as content, but no 
+	 * conversation id, so it can be copied and sent for every game.
+	 * 
+	 * @param opponentName name of the opponent's agent
+	 * @param action either {@link OfferAction} or {@link ResponseAction}
+	 * @param language the language to encode the AgentAction in
+	 * @return the message
+	 */
+	private ACLMessage createTemplate(String opponentName, AgentAction action, String language) {
 		// Create a new ACLMessage and set the ontology and language
 		final ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
 		msg.setOntology(agent.getOntology().getName());
-		msg.setLanguage(agent.getCodec().getName());
+		msg.setLanguage(language);
 		// Create a new AID, add the given AgentAction and add it to the message
 		final AID receiver = new AID(opponentName, AID.ISGUID);
 		try {
@@ -177,7 +327,6 @@ public class Strategy {
 		}
 		msg.addReceiver(receiver);
 		
-		// Send the message
-		agent.send(msg);
+		return msg;
 	}
 }